@@ -0,0 +1,115 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package benchmarks;
+
+import javafx.collections.ObservableList;
+import model.Inventory;
+import model.Part;
+import model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Inventory calls the forms make, at several inventory sizes. The inventory is static, so every
+ * parameter set runs in its own forked JVM and is filled once in setup; the benchmarks that change the inventory
+ * put it back as they found it, so its size stays at the parameter for the whole run.
+ *
+ * Each call works on a different part, picked at random ahead of time, so lookups are not served from a warm cache
+ * line. No JavaFX toolkit is started; the table views are brought up to date on the calling thread, as they are before
+ * the application sets a view executor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class InventoryBenchmark {
+    private static final int PICKS = 4096;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Part[] parts;
+    private Product product;
+    private final int[] picks = new int[PICKS];
+    private int next;
+
+    /**
+     * Fills the inventory with size parts and a tenth as many products.
+     */
+    @Setup
+    public void load() {
+        InventoryData data = new InventoryData();
+        parts = data.load(size, Math.max(1, size / 10));
+        product = Inventory.lookupProduct(size + 1);
+        for (int i = 0; i < PICKS; i++)
+            picks[i] = data.nextInt(size);
+        // name indexing of a large batch finishes in the background; the first search waits for it
+        Inventory.lookupPart("warm up");
+    }
+
+    private int pick() {
+        return picks[next++ & (PICKS - 1)];
+    }
+
+    @Benchmark
+    public Part lookupPartById() {
+        return Inventory.lookupPart(pick() + 1);
+    }
+
+    @Benchmark
+    public ObservableList<Part> lookupPartByName() {
+        return Inventory.lookupPart(InventoryData.QUERIES[next++ % InventoryData.QUERIES.length]);
+    }
+
+    @Benchmark
+    public int getPartIndex() {
+        return Inventory.getPartIndex(parts[pick()]);
+    }
+
+    /**
+     * Saves a part back over itself at its own index, as the Modify Part form does when nothing was renamed.
+     */
+    @Benchmark
+    public void updatePart() {
+        Part part = parts[pick()];
+        Inventory.updatePart(Inventory.getPartIndex(part), part);
+    }
+
+    /**
+     * Deletes a part and adds it back. The two are measured together so the inventory keeps its size; the part moves to
+     * the end of the list, so over the run the deletes are spread over every position.
+     */
+    @Benchmark
+    public boolean deletePart() {
+        Part part = parts[pick()];
+        boolean deleted = Inventory.deletePart(part);
+        Inventory.addPart(part);
+        return deleted;
+    }
+
+    /**
+     * Associates a part with a product in the inventory and removes it again.
+     */
+    @Benchmark
+    public boolean addAndDeleteAssociatedPart() {
+        Part part = parts[pick()];
+        product.addAssociatedPart(part);
+        return product.deleteAssociatedPart(part);
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package benchmarks;
+
+import model.InHouse;
+import model.Inventory;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fills the inventory with generated parts and products for the benchmarks. Names are built the way a bike shop's
+ * parts list reads, e.g. "Alloy Brake Lever 26mm", from a few short word lists. The kinds of part are picked with a
+ * skewed distribution, so a handful of words like "Bolt" and "Spoke" appear in many names and most others in few,
+ * which is what makes name search on real data uneven.
+ */
+class InventoryData {
+    private static final String[] MATERIALS = {"Steel", "Alloy", "Carbon", "Titanium", "Brass", "Rubber", "Chromoly",
+            "Nylon", "Stainless", "Aluminum"};
+    private static final String[] KINDS = {"Bolt", "Spoke", "Washer", "Nut", "Cable", "Chain", "Tube", "Tire",
+            "Brake Pad", "Brake Lever", "Sprocket", "Cassette", "Derailleur", "Crank Arm", "Pedal", "Saddle",
+            "Seat Post", "Handlebar", "Stem", "Headset", "Bottom Bracket", "Hub", "Rim", "Fork", "Frame", "Grip",
+            "Bell", "Reflector", "Kickstand", "Fender"};
+    private static final String[] SIZES = {"M5", "M6", "M8", "12mm", "26mm", "29in", "700c", "3/8in", "1-1/8in", "XL",
+            "S", "M", "L"};
+    private static final String[] COMPANIES = {"Shimano", "SRAM", "Campagnolo", "Acme Cycle Supply", "Velo Parts Co",
+            "Northwind Components"};
+    private static final String[] PRODUCTS = {"Road Bike", "Mountain Bike", "Gravel Bike", "Kids Bike", "Tandem",
+            "Commuter", "Cargo Bike", "BMX"};
+
+    /**
+     * Queries for the name search benchmark: common words, rare words, short prefixes and misses.
+     */
+    static final String[] QUERIES = {"bolt", "spoke m6", "brake", "titanium sprocket", "derail", "kick", "ca",
+            "700c", "nothing like this", "alloy rim 29in"};
+
+    private final Random random = new Random(482);
+
+    /**
+     * Picks an index with a skew towards the front of the list.
+     */
+    private int skewed(int bound) {
+        double u = random.nextDouble();
+        return (int) (bound * u * u * u);
+    }
+
+    String partName() {
+        return MATERIALS[random.nextInt(MATERIALS.length)] + " " + KINDS[skewed(KINDS.length)] + " "
+                + SIZES[random.nextInt(SIZES.length)];
+    }
+
+    Part part(int id) {
+        double price = 0.25 + random.nextInt(20000) / 100.0;
+        int max = 10 + random.nextInt(500);
+        int min = random.nextInt(10);
+        int stock = min + random.nextInt(max - min + 1);
+        if (random.nextInt(3) == 0)
+            return new Outsourced(id, partName(), price, stock, min, max, COMPANIES[skewed(COMPANIES.length)]);
+        return new InHouse(id, partName(), price, stock, min, max, 1 + random.nextInt(200));
+    }
+
+    /**
+     * Adds parts with IDs 1 to parts, then products with 3 to 8 associated parts each.
+     *
+     * @param parts the number of parts
+     * @param products the number of products
+     * @return the parts, in inventory order
+     */
+    Part[] load(int parts, int products) {
+        Part[] all = new Part[parts];
+        List<Part> batch = new ArrayList<>(parts);
+        for (int i = 0; i < parts; i++) {
+            all[i] = part(i + 1);
+            batch.add(all[i]);
+        }
+        Inventory.addParts(batch);
+
+        List<Product> productBatch = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            Product product = new Product(parts + i + 1, PRODUCTS[skewed(PRODUCTS.length)] + " " + (i + 1),
+                    100 + random.nextInt(5000), 1, 0, 10);
+            int count = 3 + random.nextInt(6);
+            for (int j = 0; j < count; j++)
+                product.addAssociatedPart(all[random.nextInt(parts)]);
+            productBatch.add(product);
+        }
+        Inventory.addProducts(productBatch);
+        return all;
+    }
+
+    int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+}
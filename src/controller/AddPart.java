@@ -6,12 +6,8 @@
 package controller;
 
 import javafx.event.ActionEvent;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.stage.Stage;
 import model.Inventory;
 import model.InHouse;
 import model.Outsourced;
@@ -20,7 +16,7 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.ResourceBundle;
 
-public class AddPart implements Initializable {
+public class AddPart implements Initializable, ScreenController {
     public RadioButton inHouseRadio;
     public ToggleGroup Parts;
     public RadioButton outsourcedRadio;
@@ -38,6 +34,21 @@ public class AddPart implements Initializable {
     public void initialize(URL url, ResourceBundle resourceBundle) {
     }
 
+    /**
+     * Empties the form and selects In-House. Called each time the Add Part form is shown.
+     */
+    @Override
+    public void reset() {
+        nameTF.clear();
+        stockTF.clear();
+        priceTF.clear();
+        minTF.clear();
+        maxTF.clear();
+        machineIDCompanyNameTF.clear();
+        inHouseRadio.setSelected(true);
+        machineIDCompanyLabel.setText("Machine ID");
+    }
+
     /**
      * Generates an error message when a user enters a non-integer in an attribute field which requires an integer.
      *
@@ -55,12 +66,7 @@ public class AddPart implements Initializable {
      * @param actionEvent - the cancel button is clicked
      */
     public void onCancel(ActionEvent actionEvent) throws IOException {
-        Parent root = FXMLLoader.load(getClass().getResource("/view/MainForm.fxml"));
-        Stage stage = (Stage) ((Button)actionEvent.getSource()).getScene().getWindow();
-        Scene scene = new Scene(root);
-        stage.setTitle("Main Form");
-        stage.setScene(scene);
-        stage.show();
+        ScreenManager.show(ScreenManager.Screen.MAIN);
     }
 
     /**
@@ -86,12 +92,12 @@ public class AddPart implements Initializable {
      * user-entered data is correctly formatted. If an attribute is not of the correct type, if min is not less than
      * max, or if inventory is not between min and max, an error message is generated and the user is returned to the
      * form. If the data is correct, a new InHouse or Outsourced part is created, based on the selected radio button,
-     * added to inventory, and the user is returned to the main menu.
+     * added to inventory, and the user is returned to the main menu. The part ID is only generated once the data is
+     * valid, so failed saves do not use up IDs.
      *
      * @param actionEvent - the save button is clicked
      */
     public void onSave(ActionEvent actionEvent) throws IOException {
-        int autoID = Inventory.getAutoID();
         String name = nameTF.getText();
         String invStr = stockTF.getText();
         String priceStr = priceTF.getText();
@@ -154,28 +160,19 @@ public class AddPart implements Initializable {
             }
 
             if (valid) {
-                InHouse part = new InHouse(autoID, name, price, stock, min, max, machineID);
+                InHouse part = new InHouse(Inventory.getAutoID(), name, price, stock, min, max, machineID);
                 Inventory.addPart(part);
 
-                Parent root = FXMLLoader.load(getClass().getResource("/view/MainForm.fxml"));
-                Stage stage = (Stage) ((Button)actionEvent.getSource()).getScene().getWindow();
-                Scene scene = new Scene(root);
-                stage.setTitle("Main Form");
-                stage.setScene(scene);
-                stage.show();
+                ScreenManager.show(ScreenManager.Screen.MAIN);
             }
         }
         else if (outsourcedRadio.isSelected()) {
             if (valid) {
-                Outsourced part = new Outsourced(autoID, name, price, stock, min, max, machineIDCoNameStr);
+                Outsourced part = new Outsourced(Inventory.getAutoID(), name, price, stock, min, max,
+                        machineIDCoNameStr);
                 Inventory.addPart(part);
 
-                Parent root = FXMLLoader.load(getClass().getResource("/view/MainForm.fxml"));
-                Stage stage = (Stage) ((Button)actionEvent.getSource()).getScene().getWindow();
-                Scene scene = new Scene(root);
-                stage.setTitle("Main Form");
-                stage.setScene(scene);
-                stage.show();
+                ScreenManager.show(ScreenManager.Screen.MAIN);
             }
         }
     }
@@ -8,13 +8,8 @@ package controller;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.stage.Stage;
 import model.*;
 
 import java.io.IOException;
@@ -22,7 +17,7 @@ import java.net.URL;
 import java.util.Optional;
 import java.util.ResourceBundle;
 
-public class AddProduct implements Initializable {
+public class AddProduct implements Initializable, ScreenController {
     public Button cancelButton;
     public Button saveButton;
     public Button addAssocPartButton;
@@ -45,6 +40,7 @@ public class AddProduct implements Initializable {
     public TextField maxTF;
     public TextField minTF;
     private ObservableList<Part> associatedParts = FXCollections.observableArrayList();
+    private LiveSearch<Part> partSearch;
 
     private Product product;
 
@@ -55,21 +51,39 @@ public class AddProduct implements Initializable {
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        allPartsTable.setItems(Inventory.getAllParts());
+        allPartsTable.setSortPolicy(table -> Inventory.sortParts(table.getItems(),
+                table.getSortOrder().isEmpty() ? null : table.getComparator()));
 
-        allPartsIDCol.setCellValueFactory(new PropertyValueFactory<>("id"));
-        allPartsNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
-        allPartsInvCol.setCellValueFactory(new PropertyValueFactory<>("stock"));
-        allPartsCostCol.setCellValueFactory(new PropertyValueFactory<>("price"));
+        allPartsIDCol.setCellValueFactory(TableCells.PART_ID);
+        allPartsNameCol.setCellValueFactory(TableCells.PART_NAME);
+        allPartsInvCol.setCellValueFactory(TableCells.PART_STOCK);
+        allPartsCostCol.setCellValueFactory(TableCells.PART_PRICE);
+
+        partSearch = new LiveSearch<>(searchPartsTF, allPartsTable, Inventory::searchParts);
 
         assocPartsTable.setItems(associatedParts);
 
-        assocPartsIDCol.setCellValueFactory(new PropertyValueFactory<>("id"));
-        assocPartsNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
-        assocPartsInvCol.setCellValueFactory(new PropertyValueFactory<>("stock"));
-        assocPartsCostCol.setCellValueFactory(new PropertyValueFactory<>("price"));
+        assocPartsIDCol.setCellValueFactory(TableCells.PART_ID);
+        assocPartsNameCol.setCellValueFactory(TableCells.PART_NAME);
+        assocPartsInvCol.setCellValueFactory(TableCells.PART_STOCK);
+        assocPartsCostCol.setCellValueFactory(TableCells.PART_PRICE);
+    }
 
-        product = new Product(Inventory.getAutoID(), "New Product", -1, -1, -1, -1);
+    /**
+     * Empties the form, clears the search and starts a new product with no associated parts. Called each time the Add
+     * Product form is shown.
+     */
+    @Override
+    public void reset() {
+        nameTF.clear();
+        stockTF.clear();
+        priceTF.clear();
+        maxTF.clear();
+        minTF.clear();
+        partSearch.reset(Inventory.getAllParts());
+        allPartsTable.getSelectionModel().clearSelection();
+        associatedParts.clear();
+        product = new Product(0, "New Product", -1, -1, -1, -1);
     }
 
     /**
@@ -108,12 +122,7 @@ public class AddProduct implements Initializable {
      * @param actionEvent - the cancel button is clicked
      */
     public void onCancel(ActionEvent actionEvent) throws IOException {
-        Parent root = FXMLLoader.load(getClass().getResource("/view/MainForm.fxml"));
-        Stage stage = (Stage) ((Button)actionEvent.getSource()).getScene().getWindow();
-        Scene scene = new Scene(root);
-        stage.setTitle("Main Form");
-        stage.setScene(scene);
-        stage.show();
+        ScreenManager.show(ScreenManager.Screen.MAIN);
     }
 
     /**
@@ -142,7 +151,7 @@ public class AddProduct implements Initializable {
                     associatedParts.remove(current);
                     Alert success = new Alert(Alert.AlertType.INFORMATION, "Associated part removed.");
                     success.showAndWait();
-                } else if (!product.deleteAssociatedPart(current)) {
+                } else {
                     Alert fail = new Alert(Alert.AlertType.ERROR, "Unable to remove associated part.");
                     fail.showAndWait();
                 }
@@ -154,15 +163,13 @@ public class AddProduct implements Initializable {
     /**
      * Creates a new product and saves in inventory. First, each attribute field is checked to ensure that the
      * user-entered data is correctly formatted. If an attribute is not of the correct type, if min is not less than
-     * max, or if inventory is not between min and max, an error message is generated and the user is returned to the
-     * form. If the data is correct, the new product is added to the inventory, and the user is returned to the main
-     * menu.
+     * max, if inventory is not between min and max, or if the price is below the cost of the associated parts, an error
+     * message is generated and the user is returned to the form. If the data is correct, the new product is given its
+     * ID, added to the inventory, and the user is returned to the main menu.
      *
      * @param actionEvent - the save button is clicked
      */
     public void onSave(ActionEvent actionEvent) throws IOException {
-
-        int autoID = Inventory.getAutoID();
         String name = nameTF.getText();
         String invStr = stockTF.getText();
         String priceStr = priceTF.getText();
@@ -216,53 +223,35 @@ public class AddProduct implements Initializable {
             alert.showAndWait();
             valid = false;
         }
+        if (price >= 0 && price < Inventory.getPartsCost(product)) {
+            Alert alert = new Alert(Alert.AlertType.ERROR, "Price must be at least the cost of the parts.");
+            alert.showAndWait();
+            valid = false;
+        }
 
         if (valid) {
+            product.setID(Inventory.getAutoID());
             product.setName(name);
             product.setPrice(price);
             product.setStock(stock);
             product.setMin(min);
             product.setMax(max);
 
-            for (Part part : associatedParts)
-                product.addAssociatedPart(part);
-
             Inventory.addProduct(product);
 
-            Parent root = FXMLLoader.load(getClass().getResource("/view/MainForm.fxml"));
-            Stage stage = (Stage) ((Button) actionEvent.getSource()).getScene().getWindow();
-            Scene scene = new Scene(root);
-            stage.setTitle("Main Form");
-            stage.setScene(scene);
-            stage.show();
+            ScreenManager.show(ScreenManager.Screen.MAIN);
         }
     }
 
     /**
-     * Searches for a part in the All Parts table. First the function checks to see if the user-entered query is an
-     * integer. If it is, the function searches by Part ID and displays the matching part in the table. If the search
-     * query is not an integer, the function searches by Part Name and displays all parts containing the query. If no
-     * matching parts are found, a message appears indicating that there are no matching parts.
+     * Searches for a part in the All Parts table. The table is searched as the user types; pressing enter searches
+     * straight away. If the user-entered query is an integer, the part with that Part ID is shown. Otherwise, all
+     * parts whose names contain the query are shown. If no matching parts are found, the table says so in place of
+     * its rows.
      *
      * @param actionEvent - the user enters a query into the search bar and presses enter
      */
     public void onSearchParts(ActionEvent actionEvent) {
-        String query = searchPartsTF.getText();
-        ObservableList<Part> parts = FXCollections.observableArrayList();
-
-        try {
-            int queryInt = Integer.parseInt(query);
-            Part id = Inventory.lookupPart(queryInt);
-            if (id != null)
-                parts.add(id);
-        } catch (NumberFormatException e) {
-            parts = Inventory.lookupPart(query);
-        }
-        if (parts.size() == 0) {
-            Alert alert = new Alert(Alert.AlertType.INFORMATION, "No items found.");
-            alert.showAndWait();
-        }
-
-        allPartsTable.setItems(parts);
+        partSearch.now();
     }
 }
@@ -0,0 +1,133 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package controller;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.util.Duration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Searches a table as the user types in its search box. The search waits until typing pauses, then runs on a
+ * background thread so the form keeps responding while a large inventory is searched. A search overtaken by more
+ * typing is cancelled if it has not started, and its result is thrown away if it has; only the latest query's result
+ * reaches the table. When there are no matches, the table says so in place of its rows rather than in a pop-up.
+ *
+ * Each new search is given the list the table shows and the query it was found by, so a query that extends the last
+ * one only has to check the rows already shown.
+ *
+ * @param <T> Part or Product
+ */
+final class LiveSearch<T> {
+
+    /**
+     * Prepares a search, e.g. Inventory::searchParts.
+     *
+     * @param <T> Part or Product
+     */
+    interface Search<T> {
+        Supplier<ObservableList<T>> prepare(String query, ObservableList<T> shown, String shownQuery);
+    }
+
+    private static final Duration PAUSE = Duration.millis(200);
+
+    private static final ExecutorService searches = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final TextField field;
+    private final TableView<T> table;
+    private final Search<T> search;
+    private final Label placeholder = new Label();
+    private final PauseTransition pause = new PauseTransition(PAUSE);
+
+    private String shownQuery = "";
+    private volatile long latest;
+    private Future<?> running;
+
+    /**
+     * Starts searching the table each time the text in the search box changes. Called on the JavaFX thread.
+     *
+     * @param field the search box
+     * @param table the table to search
+     * @param search prepares a search from the query and what the table shows
+     */
+    LiveSearch(TextField field, TableView<T> table, Search<T> search) {
+        this.field = field;
+        this.table = table;
+        this.search = search;
+        table.setPlaceholder(placeholder);
+        pause.setOnFinished(event -> run());
+        field.textProperty().addListener((observable, oldText, text) -> pause.playFromStart());
+    }
+
+    /**
+     * Searches straight away, e.g. when the user presses Enter, without waiting for the pause.
+     */
+    void now() {
+        pause.stop();
+        run();
+    }
+
+    /**
+     * Cancels any search under way, clears the search box and shows a list in the table.
+     *
+     * @param all the list to show, e.g. Inventory.getAllParts()
+     */
+    void reset(ObservableList<T> all) {
+        field.clear();
+        pause.stop();
+        cancel();
+        shownQuery = "";
+        placeholder.setText("");
+        table.setItems(all);
+    }
+
+    private void run() {
+        String query = field.getText();
+        cancel();
+        long ticket = ++latest;
+        Supplier<ObservableList<T>> prepared = search.prepare(query, table.getItems(), shownQuery);
+        running = searches.submit(() -> {
+            if (ticket != latest)
+                return;
+            ObservableList<T> result = prepared.get();
+            Platform.runLater(() -> show(ticket, query, result));
+        });
+    }
+
+    private void show(long ticket, String query, ObservableList<T> result) {
+        if (ticket != latest)
+            return;
+        running = null;
+        shownQuery = query;
+        placeholder.setText(query.isBlank() ? "" : "No items found.");
+        table.setItems(result);
+        if (!table.getSortOrder().isEmpty())
+            table.sort();
+    }
+
+    /**
+     * Stops a search that has not started and makes sure the result of one that has is not shown.
+     */
+    private void cancel() {
+        latest++;
+        if (running != null) {
+            running.cancel(false);
+            running = null;
+        }
+    }
+}
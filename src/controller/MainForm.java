@@ -6,20 +6,13 @@
 package controller;
 
 import javafx.application.Platform;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Node;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.stage.Stage;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
 
@@ -29,7 +22,7 @@ import model.Product;
 
 
 
-public class MainForm implements Initializable {
+public class MainForm implements Initializable, ScreenController {
     public Button exitButton;
     public Button addProductButton;
     public Button modProductButton;
@@ -53,28 +46,49 @@ public class MainForm implements Initializable {
     Alert delSuccess = new Alert(Alert.AlertType.INFORMATION, "Item successfully deleted.");
     Alert delFail = new Alert(Alert.AlertType.ERROR, "Unable to delete item.");
     Alert noSelection = new Alert(Alert.AlertType.ERROR, "Select an item.");
-    Alert noSearch = new Alert(Alert.AlertType.INFORMATION, "No items found.");
+
+    private LiveSearch<Part> partSearch;
+    private LiveSearch<Product> productSearch;
 
     /**
-     * Initializes the Main Menu form and sets up the Parts and Products tables.
+     * Initializes the Main Menu form and sets up the Parts and Products tables. The tables show read-only views of the
+     * inventory that hold no rows of their own, so they are sorted by the inventory rather than in place. Both tables
+     * are searched as the user types.
      *
      * @param url, resourceBundle - the main menu form
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        partsMenu.setItems(Inventory.getAllParts());
+        partsMenu.setSortPolicy(table -> Inventory.sortParts(table.getItems(),
+                table.getSortOrder().isEmpty() ? null : table.getComparator()));
+
+        partIDCol.setCellValueFactory(TableCells.PART_ID);
+        partNameCol.setCellValueFactory(TableCells.PART_NAME);
+        partsInvCol.setCellValueFactory(TableCells.PART_STOCK);
+        partsCostCol.setCellValueFactory(TableCells.PART_PRICE);
 
-        partIDCol.setCellValueFactory(new PropertyValueFactory<>("id"));
-        partNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
-        partsInvCol.setCellValueFactory(new PropertyValueFactory<>("stock"));
-        partsCostCol.setCellValueFactory(new PropertyValueFactory<>("price"));
+        productMenu.setSortPolicy(table -> Inventory.sortProducts(table.getItems(),
+                table.getSortOrder().isEmpty() ? null : table.getComparator()));
 
-        productMenu.setItems(Inventory.getAllProducts());
+        prodIDCol.setCellValueFactory(TableCells.PRODUCT_ID);
+        prodNameCol.setCellValueFactory(TableCells.PRODUCT_NAME);
+        prodInvCol.setCellValueFactory(TableCells.PRODUCT_STOCK);
+        prodCostCol.setCellValueFactory(TableCells.PRODUCT_PRICE);
 
-        prodIDCol.setCellValueFactory(new PropertyValueFactory<>("ID"));
-        prodNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
-        prodInvCol.setCellValueFactory(new PropertyValueFactory<>("stock"));
-        prodCostCol.setCellValueFactory(new PropertyValueFactory<>("price"));
+        partSearch = new LiveSearch<>(searchPartsTF, partsMenu, Inventory::searchParts);
+        productSearch = new LiveSearch<>(searchProductsTF, productMenu, Inventory::searchProducts);
+    }
+
+    /**
+     * Clears the searches and selections and shows the full inventory again. Called each time the Main Menu is shown;
+     * any column sort the user chose is kept.
+     */
+    @Override
+    public void reset() {
+        partSearch.reset(Inventory.getAllParts());
+        productSearch.reset(Inventory.getAllProducts());
+        partsMenu.getSelectionModel().clearSelection();
+        productMenu.getSelectionModel().clearSelection();
     }
 
     public boolean confirmDel(String item) {
@@ -99,17 +113,7 @@ public class MainForm implements Initializable {
      * @param actionEvent - the add part button is clicked
      */
     public void onAddPart(ActionEvent actionEvent) throws IOException {
-        try {
-            Parent root = FXMLLoader.load(getClass().getResource("/view/AddPart.fxml"));
-            Stage stage = (Stage) ((Node)actionEvent.getSource()).getScene().getWindow();
-            Scene scene = new Scene(root);
-            stage.setTitle("Add Part");
-            stage.setScene(scene);
-            stage.show();
-        }
-        catch (Exception e) {
-            e.printStackTrace();
-        }
+        ScreenManager.show(ScreenManager.Screen.ADD_PART);
     }
 
     /**
@@ -118,12 +122,7 @@ public class MainForm implements Initializable {
      * @param actionEvent - the add product button is clicked
      */
     public void onAddProduct(ActionEvent actionEvent) throws IOException {
-        Parent root = FXMLLoader.load(getClass().getResource("/view/AddProduct.fxml"));
-        Stage stage = (Stage) ((Node)actionEvent.getSource()).getScene().getWindow();
-        Scene scene = new Scene(root);
-        stage.setTitle("Add Product");
-        stage.setScene(scene);
-        stage.show();
+        ScreenManager.show(ScreenManager.Screen.ADD_PRODUCT);
     }
 
     /**
@@ -131,13 +130,24 @@ public class MainForm implements Initializable {
      * If the user clicks OK, the part is deleted from inventory. If the user does not select a part, or if the part
      * can't be deleted for some other reason, a descriptive error message is generated.
      *
+     * If the part is associated with any products, the pop-up names them instead and asks whether to remove the part
+     * from those products as well. The products are found through the inventory's where-used index.
+     *
      * @param actionEvent - the delete part button is clicked
      */
     public void onDeletePart(ActionEvent actionEvent) {
         Part selectedPart = partsMenu.getSelectionModel().getSelectedItem();
 
         if (selectedPart != null) {
-            if (confirmDel(selectedPart.getName())) {
+            List<Product> usedBy = Inventory.lookupProductsUsing(selectedPart.getId());
+            if (!usedBy.isEmpty()) {
+                if (confirmCascade(selectedPart.getName(), usedBy)) {
+                    if (Inventory.deletePartCascade(selectedPart))
+                        delSuccess.show();
+                    else
+                        delFail.show();
+                }
+            } else if (confirmDel(selectedPart.getName())) {
                 if (Inventory.deletePart(selectedPart))
                     delSuccess.show();
                 else if (!Inventory.deletePart(selectedPart))
@@ -148,6 +158,29 @@ public class MainForm implements Initializable {
             noSelection.showAndWait();
     }
 
+    /**
+     * Asks whether to delete a part that products still use, listing the first few of them.
+     *
+     * @param item the name of the part
+     * @param usedBy the products using the part
+     * @return boolean representing whether the user chose to delete the part
+     */
+    public boolean confirmCascade(String item, List<Product> usedBy) {
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < usedBy.size() && i < 5; i++)
+            names.append("\n").append(usedBy.get(i).getName());
+        if (usedBy.size() > 5)
+            names.append("\n...and ").append(usedBy.size() - 5).append(" more");
+
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, item + " is used by " + usedBy.size()
+                + (usedBy.size() == 1 ? " product:" : " products:") + names
+                + "\n\nRemove it from these products and delete it?", ButtonType.YES, ButtonType.NO);
+        alert.setTitle("Part In Use");
+
+        Optional<ButtonType> response = alert.showAndWait();
+        return response.isPresent() && response.get() == ButtonType.YES;
+    }
+
     /**
      * Deletes a product from inventory. First, a confirmation pop-up asks if the user wants to delete the selected
      * product. If the user clicks OK, the function checks to see if there are any parts associated with the product. If
@@ -160,7 +193,7 @@ public class MainForm implements Initializable {
         Product selectedProduct = productMenu.getSelectionModel().getSelectedItem();
 
         if (selectedProduct != null) {
-            if (selectedProduct.getAssociatedParts().size() != 0) {
+            if (selectedProduct.getAssociatedPartCount() != 0) {
                 Alert assocParts = new Alert(Alert.AlertType.ERROR, "Can't delete a product with associated parts.");
                 assocParts.showAndWait();
             } else if (confirmDel(selectedProduct.getName())) {
@@ -190,23 +223,14 @@ public class MainForm implements Initializable {
      * @param actionEvent - the modify part button is clicked
      */
     public void onModPart(ActionEvent actionEvent) throws IOException {
-        FXMLLoader loader = new FXMLLoader();
-        loader.setLocation(getClass().getResource("/view/ModifyPart.fxml"));
-        Parent root = loader.load();
-        Scene scene = new Scene(root);
-        ModifyPart controller = loader.getController();
-
-        try {
-            Part selectedPart = partsMenu.getSelectionModel().getSelectedItem();
-            controller.loadPart(selectedPart);
+        Part selectedPart = partsMenu.getSelectionModel().getSelectedItem();
 
-            Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
-            stage.setTitle("Modify Part");
-            stage.setScene(scene);
-            stage.show();
-        } catch (Exception e) {
-            noSelection.showAndWait();
+        if (selectedPart != null) {
+            ModifyPart controller = ScreenManager.show(ScreenManager.Screen.MODIFY_PART);
+            controller.loadPart(selectedPart);
         }
+        else
+            noSelection.showAndWait();
     }
 
     /**
@@ -216,74 +240,37 @@ public class MainForm implements Initializable {
      * @param actionEvent - the modify part button is clicked
      */
     public void onModProduct(ActionEvent actionEvent) throws IOException {
-        FXMLLoader loader = new FXMLLoader();
-        loader.setLocation(getClass().getResource("/view/ModifyProduct.fxml"));
-        Parent root = loader.load();
-        Scene scene = new Scene(root);
-        ModifyProduct controller = loader.getController();
-
-        try {
-            Product selectedProduct = productMenu.getSelectionModel().getSelectedItem();
-            controller.loadProduct(selectedProduct);
+        Product selectedProduct = productMenu.getSelectionModel().getSelectedItem();
 
-            Stage stage = (Stage) ((Node)actionEvent.getSource()).getScene().getWindow();
-            stage.setTitle("Modify Product");
-            stage.setScene(scene);
-            stage.show();
-        } catch (Exception e) {
-            noSelection.showAndWait();
+        if (selectedProduct != null) {
+            ModifyProduct controller = ScreenManager.show(ScreenManager.Screen.MODIFY_PRODUCT);
+            controller.loadProduct(selectedProduct);
         }
+        else
+            noSelection.showAndWait();
     }
 
     /**
-     * Searches for a part in the parts table. First the function checks to see if the user-entered query is an integer.
-     * If it is, the function searches by Part ID and displays the matching part in the table. If the search query is
-     * not an integer, the function searches by Part Name and displays all parts containing the query. If no matching
-     * parts are found, a message appears indicating that there are no matching parts.
+     * Searches for a part in the parts table. The table is searched as the user types; pressing enter searches
+     * straight away. If the user-entered query is an integer, the part with that Part ID is shown. Otherwise, all
+     * parts whose names contain the query are shown. If no matching parts are found, the table says so in place of
+     * its rows.
      *
      * @param actionEvent - the user enters a query into the search parts bar and presses enter
      */
     public void onSearchParts(ActionEvent actionEvent) {
-        String query = searchPartsTF.getText();
-        ObservableList<Part> parts = FXCollections.observableArrayList();
-
-        try {
-            int queryInt = Integer.parseInt(query);
-            Part id = Inventory.lookupPart(queryInt);
-            if (id != null)
-                parts.add(id);
-        } catch (NumberFormatException e) {
-            parts = Inventory.lookupPart(query);
-        }
-        if (parts.size() == 0)
-            noSearch.showAndWait();
-
-        partsMenu.setItems(parts);
+        partSearch.now();
     }
 
     /**
-     * Searches for a product in the products table. First the function checks to see if the user-entered query is an
-     * integer. If it is, the function searches by Product ID and displays the matching product in the table. If the
-     * search query is not an integer, the function searches by Product Name and displays all products containing the
-     * query. If no matching products are found, a message appears indicating that there are no matching products.
+     * Searches for a product in the products table. The table is searched as the user types; pressing enter searches
+     * straight away. If the user-entered query is an integer, the product with that Product ID is shown. Otherwise,
+     * all products whose names contain the query are shown. If no matching products are found, the table says so in
+     * place of its rows.
      *
-     * @param actionEvent - the user enters a query into the search parts bar and presses enter
+     * @param actionEvent - the user enters a query into the search products bar and presses enter
      */
     public void onSearchProducts(ActionEvent actionEvent) {
-        String query = searchProductsTF.getText();
-        ObservableList<Product> products = Inventory.lookupProduct(query);
-
-        try {
-            int queryInt = Integer.parseInt(query);
-            Product id = Inventory.lookupProduct(queryInt);
-            if (id != null)
-                products.add(id);
-        } catch (NumberFormatException e) {
-            products = Inventory.lookupProduct(query);
-        }
-        if (products.size() == 0)
-            noSearch.showAndWait();
-
-        productMenu.setItems(products);
+        productSearch.now();
     }
-}
+}
\ No newline at end of file
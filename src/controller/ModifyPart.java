@@ -6,12 +6,8 @@
 package controller;
 
 import javafx.event.ActionEvent;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.stage.Stage;
 import model.InHouse;
 import model.Inventory;
 import model.Outsourced;
@@ -21,7 +17,7 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.ResourceBundle;
 
-public class ModifyPart implements Initializable {
+public class ModifyPart implements Initializable, ScreenController {
     public RadioButton inHouseRadio;
     public ToggleGroup modPartsType;
     public  RadioButton outsourcedRadio;
@@ -40,6 +36,23 @@ public class ModifyPart implements Initializable {
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) { }
 
+    /**
+     * Empties the form and selects In-House, ready for loadPart(). Called each time the Modify Part form is shown.
+     */
+    @Override
+    public void reset() {
+        selectedPart = null;
+        autoIDTF.clear();
+        nameTF.clear();
+        stockTF.clear();
+        priceTF.clear();
+        minTF.clear();
+        maxTF.clear();
+        machineIDCompanyNameTF.clear();
+        inHouseRadio.setSelected(true);
+        machineIDCompanyNameLabel.setText("Machine ID");
+    }
+
     /**
      * Generates an error message when a user enters a non-integer in an attribute field which requires an integer.
      *
@@ -82,12 +95,7 @@ public class ModifyPart implements Initializable {
      * @param actionEvent - the cancel button is clicked
      */
     public void onCancel(ActionEvent actionEvent) throws IOException {
-        Parent root = FXMLLoader.load(getClass().getResource("/view/MainForm.fxml"));
-        Stage stage = (Stage) ((Button) actionEvent.getSource()).getScene().getWindow();
-        Scene scene = new Scene(root);
-        stage.setTitle("Main Form");
-        stage.setScene(scene);
-        stage.show();
+        ScreenManager.show(ScreenManager.Screen.MAIN);
     }
 
     /**
@@ -112,8 +120,10 @@ public class ModifyPart implements Initializable {
      * Saves the updated data for the modified part. First, each attribute field is checked to ensure that the
      * user-entered data is correctly formatted. If an attribute is not of the correct type, if min is not less than
      * max, or if inventory is not between min and max, an error message is generated and the user is returned to the
-     * form. If the data is correct, the selected part is replaced with the updated information, including changing the
-     * part type to InHouse or Outsourced based on the selected radio button, and the user is returned to the main menu.
+     * form. If the data is correct, the selected part is updated with the new information and the user is returned to
+     * the main menu. The part is updated in place, so products using it show the new values straight away; changing
+     * the part type to InHouse or Outsourced based on the selected radio button replaces it with a part of the new
+     * type. Nothing is written to the part until every field is valid.
      *
      * @param actionEvent - the save button is clicked
      */
@@ -125,7 +135,6 @@ public class ModifyPart implements Initializable {
         String maxStr = maxTF.getText();
         String machineIDCoNameStr = machineIDCompanyNameTF.getText();
 
-        int index = Inventory.getPartIndex(selectedPart);
         int autoID = selectedPart.getId();
         int stock = -1;
         double price = -1;
@@ -138,7 +147,6 @@ public class ModifyPart implements Initializable {
 
         try {
             stock = Integer.parseInt(invStr);
-            selectedPart.setStock(stock);
         }
         catch (NumberFormatException e) {
             intAlert("Inventory");
@@ -146,7 +154,6 @@ public class ModifyPart implements Initializable {
         }
         try {
             price = Double.parseDouble(priceStr);
-            selectedPart.setPrice(price);
         }
         catch (NumberFormatException e) {
             Alert alert = new Alert(Alert.AlertType.ERROR, "Price must be a number.");
@@ -155,7 +162,6 @@ public class ModifyPart implements Initializable {
         }
         try {
             min = Integer.parseInt(minStr);
-            selectedPart.setMin(min);
         }
         catch (NumberFormatException e) {
             intAlert("Min");
@@ -163,7 +169,6 @@ public class ModifyPart implements Initializable {
         }
         try {
             max = Integer.parseInt(maxStr);
-            selectedPart.setMax(max);
         }
         catch (NumberFormatException e) {
             intAlert("Max");
@@ -197,18 +202,13 @@ public class ModifyPart implements Initializable {
         if (valid) {
             if (inHouseRadio.isSelected()) {
                 InHouse part = new InHouse(autoID, name, price, stock, min, max, machineID);
-                Inventory.updatePart(index, part);
+                Inventory.modifyPart(part);
             } else if (outsourcedRadio.isSelected()) {
                 Outsourced part = new Outsourced(autoID, name, price, stock, min, max, company);
-                Inventory.updatePart(index, part);
+                Inventory.modifyPart(part);
             }
 
-            Parent root = FXMLLoader.load(getClass().getResource("/view/MainForm.fxml"));
-            Stage stage = (Stage) ((Button) actionEvent.getSource()).getScene().getWindow();
-            Scene scene = new Scene(root);
-            stage.setTitle("Main Form");
-            stage.setScene(scene);
-            stage.show();
+            ScreenManager.show(ScreenManager.Screen.MAIN);
         }
     }
 }
@@ -8,13 +8,8 @@ package controller;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.stage.Stage;
 import model.*;
 
 import java.io.IOException;
@@ -22,7 +17,7 @@ import java.net.URL;
 import java.util.Optional;
 import java.util.ResourceBundle;
 
-public class ModifyProduct implements Initializable {
+public class ModifyProduct implements Initializable, ScreenController {
 
     public Button cancelButton;
     public Button saveButton;
@@ -46,7 +41,9 @@ public class ModifyProduct implements Initializable {
     public TextField prodMaxTF;
     public TextField prodMinTF;
     private Product selectedProduct;
+    private Product draft;
     private ObservableList<Part> associatedParts = FXCollections.observableArrayList();
+    private LiveSearch<Part> partSearch;
 
     /**
      * Initializes the Modify Product form and sets up the Parts table.
@@ -55,13 +52,40 @@ public class ModifyProduct implements Initializable {
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        allPartsTable.setItems(Inventory.getAllParts());
+        allPartsTable.setSortPolicy(table -> Inventory.sortParts(table.getItems(),
+                table.getSortOrder().isEmpty() ? null : table.getComparator()));
 
-        allPartIDCol.setCellValueFactory(new PropertyValueFactory<>("id"));
-        allPartsNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
-        allPartsInvCol.setCellValueFactory(new PropertyValueFactory<>("stock"));
-        allPartsCostCol.setCellValueFactory(new PropertyValueFactory<>("price"));
+        allPartIDCol.setCellValueFactory(TableCells.PART_ID);
+        allPartsNameCol.setCellValueFactory(TableCells.PART_NAME);
+        allPartsInvCol.setCellValueFactory(TableCells.PART_STOCK);
+        allPartsCostCol.setCellValueFactory(TableCells.PART_PRICE);
 
+        partSearch = new LiveSearch<>(searchPartsTF, allPartsTable, Inventory::searchParts);
+
+        assocPartsIDCol.setCellValueFactory(TableCells.PART_ID);
+        assocPartsNameCol.setCellValueFactory(TableCells.PART_NAME);
+        assocPartsInvCol.setCellValueFactory(TableCells.PART_STOCK);
+        assocPartsCostCol.setCellValueFactory(TableCells.PART_PRICE);
+    }
+
+    /**
+     * Empties the form and clears the search, ready for loadProduct(). Called each time the Modify Product form is
+     * shown.
+     */
+    @Override
+    public void reset() {
+        selectedProduct = null;
+        draft = null;
+        prodIDTF.clear();
+        prodNameTF.clear();
+        prodInvTF.clear();
+        prodCostTF.clear();
+        prodMaxTF.clear();
+        prodMinTF.clear();
+        partSearch.reset(Inventory.getAllParts());
+        allPartsTable.getSelectionModel().clearSelection();
+        associatedParts = FXCollections.observableArrayList();
+        assocPartsTable.setItems(associatedParts);
     }
 
     /**
@@ -77,12 +101,16 @@ public class ModifyProduct implements Initializable {
 
     /**
      * Loads the current product attributes into the Modify Product form. If the product has associated parts, they are
-     * generated in the Associated Parts table.
+     * generated in the Associated Parts table. The associated parts are edited on a draft copy of the product, so
+     * cancelling the form leaves the product as it was.
      *
      * @param product - the user-selected product to be modified
      */
     public void loadProduct(Product product) {
         selectedProduct = product;
+        draft = new Product(product.getID(), product.getName(), product.getPrice(), product.getStock(),
+                product.getMin(), product.getMax());
+        draft.setAssociatedParts(product);
 
         prodNameTF.setText(selectedProduct.getName());
         prodIDTF.setText(Integer.toString(selectedProduct.getID()));
@@ -91,20 +119,15 @@ public class ModifyProduct implements Initializable {
         prodMaxTF.setText(Integer.toString(selectedProduct.getMax()));
         prodCostTF.setText(Double.toString(selectedProduct.getPrice()));
 
-        if (selectedProduct.getAssociatedParts() != null)
-            associatedParts = selectedProduct.getAssociatedParts();
+        associatedParts = draft.getAssociatedParts();
 
         assocPartsTable.setItems(associatedParts);
-
-        assocPartsIDCol.setCellValueFactory(new PropertyValueFactory<>("id"));
-        assocPartsNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
-        assocPartsInvCol.setCellValueFactory(new PropertyValueFactory<>("stock"));
-        assocPartsCostCol.setCellValueFactory(new PropertyValueFactory<>("price"));
     }
 
     /**
      * Adds a selected part from the All Parts table to the Associated Parts. The associated part is attached to the
-     * product that is being modified. If the user does not select a part to associate, an error message is generated.
+     * draft of the product being modified, and reaches the inventory when the product is saved. If the user does not
+     * select a part to associate, an error message is generated.
      *
      * @param actionEvent - the add button is clicked
      */
@@ -112,7 +135,7 @@ public class ModifyProduct implements Initializable {
         Part part = allPartsTable.getSelectionModel().getSelectedItem();
 
         if (part != null) {
-            selectedProduct.addAssociatedPart(part);
+            draft.addAssociatedPart(part);
         }
         else {
             Alert alert = new Alert(Alert.AlertType.ERROR, "Select a part to associate.");
@@ -121,42 +144,43 @@ public class ModifyProduct implements Initializable {
     }
 
     /**
-     * Closes the Modify Product form and returns to the main menu.
+     * Closes the Modify Product form and returns to the main menu, discarding any changes.
      *
      * @param actionEvent - the cancel button is clicked
      */
     public void onCancel(ActionEvent actionEvent) throws IOException {
-        Parent root = FXMLLoader.load(getClass().getResource("/view/MainForm.fxml"));
-        Stage stage = (Stage) ((Button)actionEvent.getSource()).getScene().getWindow();
-        Scene scene = new Scene(root);
-        stage.setTitle("Main Form");
-        stage.setScene(scene);
-        stage.show();
+        ScreenManager.show(ScreenManager.Screen.MAIN);
     }
 
     /**
-     * Removes a selected part from the Associated Parts table and disassociates it with the product being modified.
-     * Generates a message which confirms that the associated part has been removed.
+     * Removes a selected part from the Associated Parts table and disassociates it from the draft of the product being
+     * modified. Generates a message which confirms that the associated part has been removed. If the user does not
+     * select a part to remove, an error message is generated.
      *
      * @param actionEvent - the remove button is clicked
      */
     public void onRemoveAssocPart(ActionEvent actionEvent) {
         Part current = assocPartsTable.getSelectionModel().getSelectedItem();
 
-        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "Are you sure you want to remove " + current.getName()
-                + "?", ButtonType.YES, ButtonType.NO);
-        alert.setTitle("Remove Associated Part?");
-
-        Optional<ButtonType> response = alert.showAndWait();
-
-        if (response.get() == ButtonType.YES) {
-            if (selectedProduct.deleteAssociatedPart(current)) {
-                associatedParts.remove(current);
-                Alert success = new Alert(Alert.AlertType.INFORMATION, "Associated part removed.");
-                success.showAndWait();
-            } else if (!selectedProduct.deleteAssociatedPart(current)) {
-                Alert fail = new Alert(Alert.AlertType.ERROR, "Unable to remove associated part.");
-                fail.showAndWait();
+        if (current == null) {
+            Alert remAlert = new Alert(Alert.AlertType.ERROR, "Select a part to remove.");
+            remAlert.showAndWait();
+        } else {
+
+            Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "Are you sure you want to remove " + current.getName()
+                    + "?", ButtonType.YES, ButtonType.NO);
+            alert.setTitle("Remove Associated Part?");
+
+            Optional<ButtonType> response = alert.showAndWait();
+
+            if (response.get() == ButtonType.YES) {
+                if (draft.deleteAssociatedPart(current)) {
+                    Alert success = new Alert(Alert.AlertType.INFORMATION, "Associated part removed.");
+                    success.showAndWait();
+                } else {
+                    Alert fail = new Alert(Alert.AlertType.ERROR, "Unable to remove associated part.");
+                    fail.showAndWait();
+                }
             }
         }
     }
@@ -164,9 +188,10 @@ public class ModifyProduct implements Initializable {
     /**
      * Saves the updated data for the modified product. First, each attribute field is checked to ensure that the
      * user-entered data is correctly formatted. If an attribute is not of the correct type, if min is not less than
-     * max, or if inventory is not between min and max, an error message is generated and the user is returned to the
-     * form. If the data is correct, the selected product is replaced with the updated information, including any
-     * associated parts, and the user is returned to the main screen.
+     * max, if inventory is not between min and max, or if the price is below the cost of the associated parts, an error
+     * message is generated and the user is returned to the form. If the data is correct, the selected product is
+     * replaced with the updated information, including the associated parts of the draft, and the user is returned to
+     * the main screen.
      *
      * @param actionEvent - the save button is clicked
      */
@@ -179,7 +204,6 @@ public class ModifyProduct implements Initializable {
         String minStr = prodMinTF.getText();
         String maxStr = prodMaxTF.getText();
 
-        int index = Inventory.getProductIndex(selectedProduct);
         int autoID = selectedProduct.getID();
         int stock = -1;
         double price = -1;
@@ -228,49 +252,32 @@ public class ModifyProduct implements Initializable {
             alert.showAndWait();
             valid = false;
         }
+        if (price >= 0 && price < Inventory.getPartsCost(draft)) {
+            Alert alert = new Alert(Alert.AlertType.ERROR, "Price must be at least the cost of the parts.");
+            alert.showAndWait();
+            valid = false;
+        }
 
         if (valid) {
             product = new Product(autoID, name, price, stock, min, max);
 
-            for (Part part : associatedParts)
-                product.addAssociatedPart(part);
+            product.setAssociatedParts(draft);
 
-            Inventory.updateProduct(index, product);
+            Inventory.updateProductById(autoID, product);
 
-            Parent root = FXMLLoader.load(getClass().getResource("/view/MainForm.fxml"));
-            Stage stage = (Stage) ((Button) actionEvent.getSource()).getScene().getWindow();
-            Scene scene = new Scene(root);
-            stage.setTitle("Main Form");
-            stage.setScene(scene);
-            stage.show();
+            ScreenManager.show(ScreenManager.Screen.MAIN);
         }
     }
 
     /**
-     * Searches for a part in the All Parts table. First the function checks to see if the user-entered query is an
-     * integer. If it is, the function searches by Part ID and displays the matching part in the table. If the search
-     * query is not an integer, the function searches by Part Name and displays all parts containing the query. If no
-     * matching parts are found, a message appears indicating that there are no matching parts.
+     * Searches for a part in the All Parts table. The table is searched as the user types; pressing enter searches
+     * straight away. If the user-entered query is an integer, the part with that Part ID is shown. Otherwise, all
+     * parts whose names contain the query are shown. If no matching parts are found, the table says so in place of
+     * its rows.
      *
      * @param actionEvent - the user enters a query into the search bar and presses enter
      */
     public void onSearchParts(ActionEvent actionEvent) {
-        String query = searchPartsTF.getText();
-        ObservableList<Part> parts = FXCollections.observableArrayList();
-
-        try {
-            int queryInt = Integer.parseInt(query);
-            Part id = Inventory.lookupPart(queryInt);
-            if (id != null)
-                parts.add(id);
-        } catch (NumberFormatException e) {
-            parts = Inventory.lookupPart(query);
-        }
-        if (parts.size() == 0) {
-            Alert alert = new Alert(Alert.AlertType.INFORMATION, "No items found.");
-            alert.showAndWait();
-        }
-
-        allPartsTable.setItems(parts);
+        partSearch.now();
     }
 }
@@ -0,0 +1,19 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package controller;
+
+/**
+ * A controller whose screen is kept by ScreenManager and shown again rather than loaded again.
+ */
+public interface ScreenController {
+
+    /**
+     * Puts the form back the way it is when first opened: empty fields, no search, nothing selected. Called on the
+     * JavaFX thread each time the screen is shown, before it is filled in for a part or product to modify. The tables
+     * are given their inventory lists here rather than in initialize(), which may run on the preload thread.
+     */
+    void reset();
+}
@@ -0,0 +1,184 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package controller;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.lang.System.Logger.Level;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Switches the application window between its screens. Each screen's FXML is loaded once and its node graph and
+ * controller kept; showing a screen again resets its controller and makes its node graph the root of the window's one
+ * Scene. The Main Menu is loaded when the application starts and the other screens are loaded straight after on a
+ * background thread, so they are usually ready before the user first opens them. If a screen is opened before its
+ * preload has finished, the JavaFX thread waits for it.
+ *
+ * Load and switch times are logged through System.Logger, loads at INFO and switches at DEBUG, and timings() sums
+ * them up.
+ */
+public final class ScreenManager {
+
+    /**
+     * The screens of the application.
+     */
+    public enum Screen {
+        MAIN("/view/MainForm.fxml", "Main Form"),
+        ADD_PART("/view/AddPart.fxml", "Add Part"),
+        MODIFY_PART("/view/ModifyPart.fxml", "Modify Part"),
+        ADD_PRODUCT("/view/AddProduct.fxml", "Add Product"),
+        MODIFY_PRODUCT("/view/ModifyProduct.fxml", "Modify Product");
+
+        private final String fxml;
+        private final String title;
+
+        Screen(String fxml, String title) {
+            this.fxml = fxml;
+            this.title = title;
+        }
+    }
+
+    /**
+     * A loaded screen and its timings. The switch counts are only touched on the JavaFX thread.
+     */
+    private static final class Loaded {
+        final Parent root;
+        final Object controller;
+        final long loadNanos;
+        final String loadedOn;
+        int switches;
+        long switchNanos;
+        long lastSwitchNanos;
+
+        Loaded(Parent root, Object controller, long loadNanos, String loadedOn) {
+            this.root = root;
+            this.controller = controller;
+            this.loadNanos = loadNanos;
+            this.loadedOn = loadedOn;
+        }
+    }
+
+    private static final System.Logger LOG = System.getLogger(ScreenManager.class.getName());
+
+    private static final Map<Screen, FutureTask<Loaded>> screens = new EnumMap<>(Screen.class);
+
+    private static Stage stage;
+    private static Scene scene;
+
+    private ScreenManager() { }
+
+    /**
+     * Loads the Main Menu into the stage and shows it, then starts loading the other screens in the background.
+     * Called once, on the JavaFX thread.
+     *
+     * @param primaryStage the application window
+     * @throws IOException if the Main Menu cannot be loaded
+     */
+    public static void start(Stage primaryStage) throws IOException {
+        stage = primaryStage;
+        for (Screen screen : Screen.values())
+            screens.put(screen, new FutureTask<>(() -> load(screen)));
+
+        scene = new Scene(loaded(Screen.MAIN).root);
+        stage.setScene(scene);
+        show(Screen.MAIN);
+        stage.show();
+
+        Thread preload = new Thread(() -> {
+            for (Screen screen : Screen.values())
+                screens.get(screen).run();
+        }, "screen-preload");
+        preload.setDaemon(true);
+        preload.start();
+    }
+
+    /**
+     * Shows a screen in the application window, resetting its form first. Called on the JavaFX thread.
+     *
+     * @param screen the screen to show
+     * @param <C> the type of the screen's controller
+     * @return the screen's controller, e.g. to load a part into the Modify Part form
+     * @throws IOException if the screen cannot be loaded
+     */
+    @SuppressWarnings("unchecked")
+    public static <C> C show(Screen screen) throws IOException {
+        long start = System.nanoTime();
+        Loaded loaded = loaded(screen);
+        if (loaded.controller instanceof ScreenController)
+            ((ScreenController) loaded.controller).reset();
+        stage.setTitle(screen.title);
+        if (scene.getRoot() != loaded.root) {
+            scene.setRoot(loaded.root);
+            stage.sizeToScene();
+        }
+        long nanos = System.nanoTime() - start;
+        loaded.switches++;
+        loaded.switchNanos += nanos;
+        loaded.lastSwitchNanos = nanos;
+        LOG.log(Level.DEBUG, () -> String.format("%s shown in %.1f ms", screen.title, nanos / 1e6));
+        return (C) loaded.controller;
+    }
+
+    /**
+     * @return one line per loaded screen: how long it took to load and on which thread, and how many times it has been
+     * shown and how long that took
+     */
+    public static String timings() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<Screen, FutureTask<Loaded>> entry : screens.entrySet()) {
+            if (!entry.getValue().isDone())
+                continue;
+            try {
+                Loaded loaded = entry.getValue().get();
+                report.append(String.format("%s: loaded in %.1f ms on %s", entry.getKey().title,
+                        loaded.loadNanos / 1e6, loaded.loadedOn));
+                if (loaded.switches > 0)
+                    report.append(String.format(", shown %d times, mean %.2f ms, last %.2f ms", loaded.switches,
+                            loaded.switchNanos / 1e6 / loaded.switches, loaded.lastSwitchNanos / 1e6));
+                report.append(System.lineSeparator());
+            } catch (InterruptedException | ExecutionException e) {
+                report.append(entry.getKey().title).append(": failed to load").append(System.lineSeparator());
+            }
+        }
+        return report.toString();
+    }
+
+    /**
+     * Returns a loaded screen, loading it on the calling thread if the preload has not got to it yet, or waiting for
+     * the preload if it is part way through.
+     */
+    private static Loaded loaded(Screen screen) throws IOException {
+        FutureTask<Loaded> task = screens.get(screen);
+        task.run();
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading " + screen.fxml, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException("Unable to load " + screen.fxml, e.getCause());
+        }
+    }
+
+    private static Loaded load(Screen screen) throws IOException {
+        long start = System.nanoTime();
+        FXMLLoader loader = new FXMLLoader(ScreenManager.class.getResource(screen.fxml));
+        Parent root = loader.load();
+        long nanos = System.nanoTime() - start;
+        String thread = Thread.currentThread().getName();
+        LOG.log(Level.INFO, () -> String.format("%s loaded in %.1f ms on %s", screen.title, nanos / 1e6, thread));
+        return new Loaded(root, loader.getController(), nanos, thread);
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package controller;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.control.TableColumn.CellDataFeatures;
+import javafx.util.Callback;
+
+import java.util.function.Function;
+
+import model.Part;
+import model.Product;
+
+/**
+ * Cell value factories for the parts and products tables. Each calls the getter directly, where PropertyValueFactory
+ * looks it up by name through reflection and wraps every value in a new ReadOnlyObjectWrapper, and returns the value in
+ * a Value, which holds nothing but the value. A table asks its columns for a value every time a cell is shown, so the
+ * factories run for every row that scrolls into view.
+ *
+ * The tables are told whenever a part or product is edited, and ask for its values again, so a cell never needs to
+ * listen to its value.
+ */
+final class TableCells {
+    static final Callback<CellDataFeatures<Part, Integer>, ObservableValue<Integer>> PART_ID = of(Part::getId);
+    static final Callback<CellDataFeatures<Part, String>, ObservableValue<String>> PART_NAME = of(Part::getName);
+    static final Callback<CellDataFeatures<Part, Integer>, ObservableValue<Integer>> PART_STOCK = of(Part::getStock);
+    static final Callback<CellDataFeatures<Part, Double>, ObservableValue<Double>> PART_PRICE = of(Part::getPrice);
+
+    static final Callback<CellDataFeatures<Product, Integer>, ObservableValue<Integer>> PRODUCT_ID =
+            of(Product::getID);
+    static final Callback<CellDataFeatures<Product, String>, ObservableValue<String>> PRODUCT_NAME =
+            of(Product::getName);
+    static final Callback<CellDataFeatures<Product, Integer>, ObservableValue<Integer>> PRODUCT_STOCK =
+            of(Product::getStock);
+    static final Callback<CellDataFeatures<Product, Double>, ObservableValue<Double>> PRODUCT_PRICE =
+            of(Product::getPrice);
+
+    private static final Value<?> EMPTY = new Value<>(null);
+
+    private TableCells() { }
+
+    /**
+     * Returns a cell value factory that reads a column's value with a getter.
+     *
+     * @param getter returns the column's value for a row
+     * @param <S> the type of the rows
+     * @param <T> the type of the column's values
+     * @return the cell value factory
+     */
+    @SuppressWarnings("unchecked")
+    static <S, T> Callback<CellDataFeatures<S, T>, ObservableValue<T>> of(Function<S, T> getter) {
+        return cell -> {
+            S row = cell.getValue();
+            return row == null ? (Value<T>) EMPTY : new Value<>(getter.apply(row));
+        };
+    }
+
+    /**
+     * A value that never changes, so it keeps no listeners.
+     *
+     * @param <T> the type of the value
+     */
+    private static final class Value<T> implements ObservableValue<T> {
+        private final T value;
+
+        Value(T value) {
+            this.value = value;
+        }
+
+        @Override
+        public T getValue() {
+            return value;
+        }
+
+        @Override
+        public void addListener(ChangeListener<? super T> listener) { }
+
+        @Override
+        public void removeListener(ChangeListener<? super T> listener) { }
+
+        @Override
+        public void addListener(InvalidationListener listener) { }
+
+        @Override
+        public void removeListener(InvalidationListener listener) { }
+    }
+}
@@ -3,10 +3,14 @@
 package main;
 
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
+import javafx.application.Platform;
 import javafx.stage.Stage;
+import controller.ScreenManager;
+import model.Inventory;
+import persistence.Journal;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  *
@@ -18,19 +22,52 @@ import javafx.stage.Stage;
  * searching by name or ID. As inventory grows, this will be very slow. The process could be sped up by sorting the
  * objects as they are added to the list. Since each item has a unique ID, a hash table could also be used. By using
  * chaining, parts and products could be organized by type, allowing for quicker searching.
+ *
+ * Searching by ID now uses a hash table keyed by the part or product ID (model.IntMap), so an ID lookup no longer
+ * depends on the size of the inventory. Searching by name goes through a trigram index (model.NameIndex), which only
+ * checks the items whose names share every three-character piece of the query.
  */
 public class Main extends Application {
     /**
-     * Loads the Main Menu.
+     * The inventory snapshot loaded at startup and saved on exit. It can be moved with -Dinventory.file=...
+     */
+    static final Path DATA_FILE = Paths.get(System.getProperty("inventory.file", "inventory.dat"));
+
+    /**
+     * The directory holding the journal of changes made since the snapshot was written.
+     */
+    static final Path JOURNAL_DIR = Paths.get(System.getProperty("inventory.journal", "inventory-journal"));
+
+    private Journal journal;
+
+    /**
+     * Loads the saved inventory, if there is one, replays the changes journaled since it was saved, and then loads the
+     * Main Menu. Every change from then on is written to the journal before the form that made it moves on. The
+     * inventory lists shown in the tables are refreshed on the JavaFX thread, so background jobs can change the
+     * inventory while the forms are open. The other forms are loaded in the background once the Main Menu is showing;
+     * see ScreenManager.
      *
      * @param stage - the Main Form
      */
     @Override
     public void start(Stage stage) throws Exception {
-        Parent root = FXMLLoader.load(getClass().getResource("/view/MainForm.fxml"));
-        stage.setTitle("Main Form");
-        stage.setScene(new Scene(root));
-        stage.show();
+        journal = Journal.open(DATA_FILE, JOURNAL_DIR, Journal.DEFAULT_COMPACT_BYTES);
+        Inventory.addListener(journal);
+        Inventory.setViewExecutor(Platform::runLater);
+
+        ScreenManager.start(stage);
+    }
+
+    /**
+     * Folds the journal into the snapshot file when the application closes, and logs how long the screens took to
+     * load and show.
+     */
+    @Override
+    public void stop() throws Exception {
+        Inventory.removeListener(journal);
+        journal.close();
+        System.getLogger(Main.class.getName()).log(System.Logger.Level.INFO, "Screen timings:"
+                + System.lineSeparator() + ScreenManager.timings());
     }
 
     public static void main(String[] args){
@@ -0,0 +1,67 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import javafx.collections.ObservableListBase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The observable list of a product's associated parts shown in the product forms. It is built from the product's
+ * bill of materials by looking each part ID up in the inventory, repeating a part once for each unit of its quantity,
+ * and rebuilt whenever the product's associated parts change. Parts no longer in the inventory are left out.
+ *
+ * Products keep only their compact bill of materials; this list exists only while a form holds on to it.
+ */
+class AssociatedPartsList extends ObservableListBase<Part> {
+    private final Product product;
+    private List<Part> parts;
+
+    AssociatedPartsList(Product product) {
+        this.product = product;
+        this.parts = resolve(product.getAssociatedPartLines());
+    }
+
+    @Override
+    public Part get(int index) {
+        return parts.get(index);
+    }
+
+    @Override
+    public int size() {
+        return parts.size();
+    }
+
+    /**
+     * Rebuilds the list from the product's bill of materials and reports the change to listeners.
+     */
+    void refresh() {
+        List<Part> old = parts;
+        parts = resolve(product.getAssociatedPartLines());
+        beginChange();
+        try {
+            if (!old.isEmpty())
+                nextRemove(0, old);
+            if (!parts.isEmpty())
+                nextAdd(0, parts.size());
+        } finally {
+            endChange();
+        }
+    }
+
+    private static List<Part> resolve(long[] lines) {
+        List<Part> parts = new ArrayList<>(lines.length);
+        for (long line : lines) {
+            Part part = Inventory.lookupPart(Product.partID(line));
+            if (part == null)
+                continue;
+            for (int i = Product.quantity(line); i > 0; i--)
+                parts.add(part);
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Works out how many units of each product can be built from the parts in stock and publishes the result as an
+ * immutable BuildableQuantities snapshot.
+ *
+ * Like the cost roll-up, the planner keeps its own copy of each part's stock and each product's bill of materials, fed
+ * by the inventory's change events, so it never locks the parts or products. A change only marks the products it
+ * affects: a part's stock marks the products using it, found through the where-used index, and a product change marks
+ * that product. A refresh is then queued on the fork-join pool, which recomputes the marked products and merges them
+ * into the last snapshot, so a burst of changes costs one refresh. When too many products are marked to be worth
+ * tracking one by one, as after a bulk import, the refresh computes every product in parallel instead.
+ */
+class BuildPlanner {
+    /**
+     * The fewest marked products that switch a refresh to a full recompute.
+     */
+    private static final int MIN_FULL = 1024;
+
+    /**
+     * The share of the catalog, as a divisor, that switches a refresh to a full recompute.
+     */
+    private static final int FULL_FRACTION = 8;
+
+    private final WhereUsed whereUsed;
+    private final IntIntMap partStock = new IntIntMap(0);
+    private final IntMap<long[]> productLines = new IntMap<>();
+    private SortedIntSet marked = new SortedIntSet();
+    private boolean full = true;
+    private boolean scheduled;
+    private volatile BuildableQuantities current = BuildableQuantities.EMPTY;
+
+    /**
+     * @param whereUsed the index used to find the products using a part
+     */
+    BuildPlanner(WhereUsed whereUsed) {
+        this.whereUsed = whereUsed;
+    }
+
+    /**
+     * @return the latest published snapshot, which may not yet show changes made in the last few moments
+     */
+    BuildableQuantities current() {
+        return current;
+    }
+
+    /**
+     * Records a part's stock, which may be new or changed, and marks the products using it.
+     *
+     * @param partID the ID of the part
+     * @param stock the part's stock
+     */
+    synchronized void partStocked(int partID, int stock) {
+        int old = partStock.get(partID);
+        partStock.put(partID, stock);
+        if (stock != old) {
+            for (int productID : whereUsed.productsUsing(partID))
+                mark(productID);
+        }
+    }
+
+    /**
+     * Forgets a part's stock and marks the products using it.
+     *
+     * @param partID the ID of the part
+     */
+    synchronized void partRemoved(int partID) {
+        if (partStock.remove(partID) != 0) {
+            for (int productID : whereUsed.productsUsing(partID))
+                mark(productID);
+        }
+    }
+
+    /**
+     * Records a product's bill of materials and marks it. Called when a product is added or replaced or its associated
+     * parts change.
+     *
+     * @param product the product
+     */
+    synchronized void productChanged(Product product) {
+        productLines.put(product.getID(), product.getAssociatedPartLines());
+        mark(product.getID());
+    }
+
+    /**
+     * @param productID the ID of the product that left the inventory
+     */
+    synchronized void productRemoved(int productID) {
+        productLines.remove(productID);
+        mark(productID);
+    }
+
+    /**
+     * Publishes every change recorded so far on the calling thread, rather than waiting for the queued refresh.
+     *
+     * @return the new snapshot
+     */
+    synchronized BuildableQuantities refresh() {
+        scheduled = false;
+        if (full) {
+            current = computeAll();
+        } else if (!marked.isEmpty()) {
+            current = merge(current, marked.toArray());
+        }
+        full = false;
+        marked = new SortedIntSet();
+        return current;
+    }
+
+    private void mark(int productID) {
+        if (!full) {
+            marked.add(productID);
+            if (marked.size() >= Math.max(MIN_FULL, current.size() / FULL_FRACTION)) {
+                full = true;
+                marked = new SortedIntSet();
+            }
+        }
+        if (!scheduled) {
+            scheduled = true;
+            ForkJoinPool.commonPool().execute(this::refresh);
+        }
+    }
+
+    /**
+     * Computes every product on the fork-join pool. Runs with the monitor held, so nothing changes the copies the
+     * workers read.
+     */
+    private BuildableQuantities computeAll() {
+        int[] productIDs = new int[productLines.size()];
+        int[] count = new int[1];
+        productLines.forEach((lines, productID) -> productIDs[count[0]++] = productID);
+        Arrays.parallelSort(productIDs);
+        int[] quantities = new int[productIDs.length];
+        IntStream.range(0, productIDs.length).parallel()
+                .forEach(i -> quantities[i] = buildable(productLines.get(productIDs[i])));
+        return new BuildableQuantities(productIDs, quantities);
+    }
+
+    /**
+     * Recomputes the marked products and copies the rest from the last snapshot. Marked products that have left the
+     * inventory are dropped and new ones are added in order.
+     */
+    private BuildableQuantities merge(BuildableQuantities last, int[] changed) {
+        int[] oldIDs = last.productIDs();
+        int[] oldQuantities = last.quantities();
+        int[] productIDs = new int[oldIDs.length + changed.length];
+        int[] quantities = new int[productIDs.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < oldIDs.length || j < changed.length) {
+            if (j == changed.length || (i < oldIDs.length && oldIDs[i] < changed[j])) {
+                productIDs[n] = oldIDs[i];
+                quantities[n++] = oldQuantities[i++];
+            } else {
+                if (i < oldIDs.length && oldIDs[i] == changed[j])
+                    i++;
+                long[] lines = productLines.get(changed[j]);
+                if (lines != null) {
+                    productIDs[n] = changed[j];
+                    quantities[n++] = buildable(lines);
+                }
+                j++;
+            }
+        }
+        if (n < productIDs.length) {
+            productIDs = Arrays.copyOf(productIDs, n);
+            quantities = Arrays.copyOf(quantities, n);
+        }
+        return new BuildableQuantities(productIDs, quantities);
+    }
+
+    private int buildable(long[] lines) {
+        int units = BuildableQuantities.UNLIMITED;
+        for (long line : lines) {
+            int stock = Math.max(0, partStock.get(Product.partID(line)));
+            units = Math.min(units, stock / Product.quantity(line));
+        }
+        return units;
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+/**
+ * Totals of the builds run through Inventory.buildProduct() and buildProducts() since the application started, as of
+ * one moment.
+ */
+public final class BuildStats {
+    private final long commits;
+    private final long unitsBuilt;
+    private final long retries;
+    private final long shortfalls;
+    private final long elapsedNanos;
+
+    BuildStats(long commits, long unitsBuilt, long retries, long shortfalls, long elapsedNanos) {
+        this.commits = commits;
+        this.unitsBuilt = unitsBuilt;
+        this.retries = retries;
+        this.shortfalls = shortfalls;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the number of builds that committed
+     */
+    public long getCommits() {
+        return commits;
+    }
+
+    /**
+     * @return the number of product units built
+     */
+    public long getUnitsBuilt() {
+        return unitsBuilt;
+    }
+
+    /**
+     * @return the number of times a build started again because a stock it read changed before it could commit
+     */
+    public long getRetries() {
+        return retries;
+    }
+
+    /**
+     * @return the number of builds refused because there was not enough of some part
+     */
+    public long getShortfalls() {
+        return shortfalls;
+    }
+
+    /**
+     * @return the time from the start of the first build to the end of the last, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the builds committed per second between the start of the first build and the end of the last
+     */
+    public double getCommitsPerSecond() {
+        return elapsedNanos == 0 ? 0 : commits * 1e9 / elapsedNanos;
+    }
+}
@@ -0,0 +1,250 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Builds one or more products as a single all-or-nothing change: the parts on their bills of materials are taken out of
+ * stock and the units built are added to the products' stock, or nothing changes at all. The transaction is optimistic.
+ * It reads the stock stamp of every part and product involved without locking anything, checks there are enough of
+ * every part, then takes the stamps one by one in ID order, each only if it still holds the version that was read. If
+ * any stamp has moved on, the ones already taken are given back and the transaction starts again from the reads. Once
+ * all are taken the new stocks are written, which gives the stamps back at their next version.
+ *
+ * Parts are never oversold: the check and the write see the same versions. Stock adjustments made at the same time
+ * wait only while a build holds the stamps, which is for as long as it takes to write them.
+ */
+final class BuildTransaction {
+    private static final LongAdder commits = new LongAdder();
+    private static final LongAdder unitsBuilt = new LongAdder();
+    private static final LongAdder retries = new LongAdder();
+    private static final LongAdder shortfalls = new LongAdder();
+    private static final AtomicLong firstNanos = new AtomicLong();
+    private static final AtomicLong lastNanos = new AtomicLong();
+
+    private final Product[] products;
+    private final int[] units;
+    private final Part[] parts;
+    private final int[] needs;
+    private final long[] productStamps;
+    private final long[] partStamps;
+
+    private BuildTransaction(Product[] products, int[] units, Part[] parts, int[] needs) {
+        this.products = products;
+        this.units = units;
+        this.parts = parts;
+        this.needs = needs;
+        productStamps = new long[products.length];
+        partStamps = new long[parts.length];
+    }
+
+    /**
+     * Works out the parts a build needs. Products named more than once are built once for all their units.
+     *
+     * @param toBuild the products to build
+     * @param unitCounts the number of units of each product to build, each above zero
+     * @param partOf returns the part in inventory with an ID, or null
+     * @return the transaction, or null if a unit count is not above zero, a part on a bill of materials is not in
+     * inventory, or a stock would overflow
+     */
+    static BuildTransaction plan(Product[] toBuild, int[] unitCounts, IntFunction<Part> partOf) {
+        IntIntMap unitsByProduct = new IntIntMap(0);
+        IntMap<Product> byID = new IntMap<>();
+        IntIntMap needByPart = new IntIntMap(0);
+        SortedIntSet partIDSet = new SortedIntSet();
+        for (int i = 0; i < toBuild.length; i++) {
+            if (unitCounts[i] <= 0)
+                return null;
+            Product product = toBuild[i];
+            long total = (long) unitsByProduct.get(product.getID()) + unitCounts[i];
+            if (total > Integer.MAX_VALUE)
+                return null;
+            unitsByProduct.put(product.getID(), (int) total);
+            byID.put(product.getID(), product);
+            for (long line : product.getAssociatedPartLines()) {
+                long need = needByPart.get(Product.partID(line)) + (long) Product.quantity(line) * unitCounts[i];
+                if (need > Integer.MAX_VALUE)
+                    return null;
+                needByPart.put(Product.partID(line), (int) need);
+                partIDSet.add(Product.partID(line));
+            }
+        }
+
+        int[] productIDs = new int[byID.size()];
+        int[] count = { 0 };
+        byID.forEach((product, productID) -> productIDs[count[0]++] = productID);
+        Arrays.sort(productIDs);
+        Product[] products = new Product[productIDs.length];
+        int[] units = new int[productIDs.length];
+        for (int i = 0; i < productIDs.length; i++) {
+            products[i] = byID.get(productIDs[i]);
+            units[i] = unitsByProduct.get(productIDs[i]);
+        }
+
+        int[] partIDs = partIDSet.toArray();
+        Part[] parts = new Part[partIDs.length];
+        int[] needs = new int[partIDs.length];
+        for (int i = 0; i < partIDs.length; i++) {
+            parts[i] = partOf.apply(partIDs[i]);
+            if (parts[i] == null)
+                return null;
+            needs[i] = needByPart.get(partIDs[i]);
+        }
+        return new BuildTransaction(products, units, parts, needs);
+    }
+
+    /**
+     * Runs the transaction, retrying until it commits or finds a part short.
+     *
+     * @return whether the products were built; false if there was not enough of some part
+     */
+    boolean run() {
+        long start = System.nanoTime();
+        firstNanos.compareAndSet(0, start);
+        try {
+            while (true) {
+                if (!readAndCheck()) {
+                    shortfalls.increment();
+                    return false;
+                }
+                if (lockAll()) {
+                    commit();
+                    commits.increment();
+                    for (int unitCount : units)
+                        unitsBuilt.add(unitCount);
+                    return true;
+                }
+                retries.increment();
+                Thread.onSpinWait();
+            }
+        } finally {
+            lastNanos.accumulateAndGet(System.nanoTime(), Math::max);
+        }
+    }
+
+    /**
+     * Reads every stamp and checks there is enough of every part.
+     */
+    private boolean readAndCheck() {
+        for (int i = 0; i < parts.length; i++) {
+            partStamps[i] = parts[i].stockStamp();
+            if (StockStamp.stock(partStamps[i]) < needs[i])
+                return false;
+        }
+        for (int i = 0; i < products.length; i++) {
+            productStamps[i] = products[i].stockStamp();
+            if ((long) StockStamp.stock(productStamps[i]) + units[i] > Integer.MAX_VALUE)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Takes every stamp at the version read, parts then products, each in ID order. If one has changed, gives back
+     * those already taken.
+     */
+    private boolean lockAll() {
+        for (int i = 0; i < parts.length; i++) {
+            if (!parts[i].lockStock(partStamps[i])) {
+                for (int j = i - 1; j >= 0; j--)
+                    parts[j].unlockStock(partStamps[j]);
+                return false;
+            }
+        }
+        for (int i = 0; i < products.length; i++) {
+            if (!products[i].lockStock(productStamps[i])) {
+                for (int j = i - 1; j >= 0; j--)
+                    products[j].unlockStock(productStamps[j]);
+                for (int j = parts.length - 1; j >= 0; j--)
+                    parts[j].unlockStock(partStamps[j]);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void commit() {
+        for (int i = 0; i < parts.length; i++)
+            parts[i].commitStock(partStamps[i], StockStamp.stock(partStamps[i]) - needs[i]);
+        for (int i = 0; i < products.length; i++)
+            products[i].commitStock(productStamps[i], StockStamp.stock(productStamps[i]) + units[i]);
+    }
+
+    /**
+     * @return the number of parts the build uses
+     */
+    int partCount() {
+        return parts.length;
+    }
+
+    /**
+     * @param index the position of the part, in part ID order
+     * @return the part
+     */
+    Part part(int index) {
+        return parts[index];
+    }
+
+    /**
+     * @param index the position of the part
+     * @return the part's stock before the build committed
+     */
+    int partStockBefore(int index) {
+        return StockStamp.stock(partStamps[index]);
+    }
+
+    /**
+     * @param index the position of the part
+     * @return the number of the part the build used
+     */
+    int partNeed(int index) {
+        return needs[index];
+    }
+
+    /**
+     * @return the number of distinct products built
+     */
+    int productCount() {
+        return products.length;
+    }
+
+    /**
+     * @param index the position of the product, in product ID order
+     * @return the product
+     */
+    Product product(int index) {
+        return products[index];
+    }
+
+    /**
+     * @param index the position of the product
+     * @return the product's stock before the build committed
+     */
+    int productStockBefore(int index) {
+        return StockStamp.stock(productStamps[index]);
+    }
+
+    /**
+     * @param index the position of the product
+     * @return the number of units of the product built
+     */
+    int productUnits(int index) {
+        return units[index];
+    }
+
+    /**
+     * @return the totals of every build run so far
+     */
+    static BuildStats stats() {
+        long first = firstNanos.get();
+        return new BuildStats(commits.sum(), unitsBuilt.sum(), retries.sum(), shortfalls.sum(),
+                first == 0 ? 0 : lastNanos.get() - first);
+    }
+}
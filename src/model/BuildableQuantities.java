@@ -0,0 +1,77 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import java.util.Arrays;
+
+/**
+ * How many units of each product in inventory can be built from the parts in stock, as of one moment. The number for
+ * a product is the least, over its associated parts, of the part's stock divided by the quantity the product needs.
+ *
+ * A snapshot never changes once it is published, so it can be read from any thread, the JavaFX thread included,
+ * without locking. Inventory.getBuildableQuantities() returns the latest one.
+ */
+public final class BuildableQuantities {
+    /**
+     * The quantity reported for a product with no associated parts, which no part stock limits.
+     */
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    static final BuildableQuantities EMPTY = new BuildableQuantities(new int[0], new int[0]);
+
+    private final int[] productIDs;
+    private final int[] quantities;
+
+    /**
+     * @param productIDs the product IDs in ascending order; kept, not copied
+     * @param quantities the buildable quantity of each product; kept, not copied
+     */
+    BuildableQuantities(int[] productIDs, int[] quantities) {
+        this.productIDs = productIDs;
+        this.quantities = quantities;
+    }
+
+    /**
+     * @return the number of products in the snapshot
+     */
+    public int size() {
+        return productIDs.length;
+    }
+
+    /**
+     * @param index the position in product ID order
+     * @return the product ID at that position
+     */
+    public int getProductID(int index) {
+        return productIDs[index];
+    }
+
+    /**
+     * @param index the position in product ID order
+     * @return the buildable quantity of the product at that position
+     */
+    public int getQuantity(int index) {
+        return quantities[index];
+    }
+
+    /**
+     * @param productID the ID of the product
+     * @return the number of units of the product that can be built, UNLIMITED if it has no associated parts, or -1 if
+     * the product was not in inventory when the snapshot was taken
+     */
+    public int get(int productID) {
+        int at = Arrays.binarySearch(productIDs, productID);
+        return at < 0 ? -1 : quantities[at];
+    }
+
+    int[] productIDs() {
+        return productIDs;
+    }
+
+    int[] quantities() {
+        return quantities;
+    }
+}
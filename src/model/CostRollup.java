@@ -0,0 +1,149 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+/**
+ * Keeps the cost of the parts of every product in inventory: the sum of each associated part's price times its
+ * quantity. When a part's price changes, only the difference is pushed to the products that use it, found through
+ * the where-used index, so a price change costs as much as the number of products using the part rather than a pass
+ * over the catalog. The products priced below the cost of their parts are kept in a set as the costs change.
+ *
+ * The roll-up keeps its own copy of each part's price and each product's bill of materials, fed by the inventory's
+ * change events, so it never has to lock the parts or products while it works.
+ */
+class CostRollup {
+    /**
+     * How far below its parts cost a price has to be to count, so rounding in the pushed differences is ignored.
+     */
+    private static final double TOLERANCE = 1e-6;
+
+    private final WhereUsed whereUsed;
+    private final IntDoubleMap partPrices = new IntDoubleMap(0);
+    private final IntDoubleMap productCosts = new IntDoubleMap(0);
+    private final IntDoubleMap productPrices = new IntDoubleMap(0);
+    private final IntMap<long[]> productLines = new IntMap<>();
+    private final SortedIntSet belowCost = new SortedIntSet();
+
+    /**
+     * @param whereUsed the index used to find the products using a part
+     */
+    CostRollup(WhereUsed whereUsed) {
+        this.whereUsed = whereUsed;
+    }
+
+    /**
+     * Records a part's price, which may be new or changed, and pushes the difference to the products using it.
+     *
+     * @param partID the ID of the part
+     * @param price the part's price
+     */
+    synchronized void partPriced(int partID, double price) {
+        double old = partPrices.get(partID);
+        partPrices.put(partID, price);
+        if (price != old)
+            push(partID, price - old);
+    }
+
+    /**
+     * Forgets a part's price and takes it off the cost of the products using it.
+     *
+     * @param partID the ID of the part
+     */
+    synchronized void partRemoved(int partID) {
+        double old = partPrices.remove(partID);
+        if (old != 0)
+            push(partID, -old);
+    }
+
+    /**
+     * Works out a product's parts cost from scratch. Called when a product is added or replaced or its associated
+     * parts change; the where-used index must already be up to date.
+     *
+     * @param product the product
+     */
+    synchronized void productChanged(Product product) {
+        int productID = product.getID();
+        long[] lines = product.getAssociatedPartLines();
+        productLines.put(productID, lines);
+        productPrices.put(productID, product.getPrice());
+        productCosts.put(productID, sum(lines));
+        check(productID);
+    }
+
+    /**
+     * @param productID the ID of the product that left the inventory
+     */
+    synchronized void productRemoved(int productID) {
+        productLines.remove(productID);
+        productPrices.remove(productID);
+        productCosts.remove(productID);
+        belowCost.remove(productID);
+    }
+
+    /**
+     * Returns the parts cost of a product. A product in inventory whose associated parts have not changed since the
+     * roll-up last saw it is answered from the cache; any other product is summed from the known part prices.
+     *
+     * @param product the product
+     * @return the sum of the prices of its associated parts times their quantities
+     */
+    synchronized double cost(Product product) {
+        long[] lines = product.getAssociatedPartLines();
+        if (productLines.get(product.getID()) == lines)
+            return productCosts.get(product.getID());
+        return sum(lines);
+    }
+
+    /**
+     * @return the IDs of the products priced below the cost of their parts, in ascending order
+     */
+    synchronized int[] belowCost() {
+        return belowCost.toArray();
+    }
+
+    private void push(int partID, double delta) {
+        for (int productID : whereUsed.productsUsing(partID)) {
+            long[] lines = productLines.get(productID);
+            if (lines == null)
+                continue;
+            int quantity = quantity(lines, partID);
+            if (quantity > 0) {
+                productCosts.add(productID, delta * quantity);
+                check(productID);
+            }
+        }
+    }
+
+    private void check(int productID) {
+        if (productPrices.get(productID) < productCosts.get(productID) - TOLERANCE)
+            belowCost.add(productID);
+        else
+            belowCost.remove(productID);
+    }
+
+    private double sum(long[] lines) {
+        double cost = 0;
+        for (long line : lines)
+            cost += partPrices.get(Product.partID(line)) * Product.quantity(line);
+        return cost;
+    }
+
+    private static int quantity(long[] lines, int partID) {
+        int low = 0;
+        int high = lines.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int id = Product.partID(lines[mid]);
+            if (id < partID)
+                low = mid + 1;
+            else if (id > partID)
+                high = mid - 1;
+            else
+                return Product.quantity(lines[mid]);
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out unique IDs for parts and products. The last ID issued is held in an AtomicInteger, so any thread can ask
+ * for an ID without locking and no two callers ever receive the same one. A bulk loader can reserve a whole block of
+ * IDs with one call and then number its items without touching the counter again.
+ */
+public class IdAllocator {
+    private final AtomicInteger lastID = new AtomicInteger();
+
+    /**
+     * Returns the next unused ID.
+     *
+     * @return the ID
+     */
+    public int next() {
+        return lastID.incrementAndGet();
+    }
+
+    /**
+     * Reserves a block of consecutive IDs. The caller owns every ID from the returned value up to the returned value
+     * plus count minus one.
+     *
+     * @param count the number of IDs to reserve
+     * @return the first ID of the block
+     */
+    public int reserve(int count) {
+        if (count < 1)
+            throw new IllegalArgumentException("count must be at least 1");
+        return lastID.getAndAdd(count) + 1;
+    }
+
+    /**
+     * Makes sure an ID that is already in use is never handed out. After a load, the counter moves past the largest
+     * loaded ID; it never moves backwards.
+     *
+     * @param usedID an ID that is already in use
+     */
+    public void seed(int usedID) {
+        lastID.accumulateAndGet(usedID, Math::max);
+    }
+
+    /**
+     * @return the last ID handed out or seeded
+     */
+    public int last() {
+        return lastID.get();
+    }
+}
@@ -26,4 +26,13 @@ public class InHouse extends Part {
     public int getMachineID() {
         return machineID;
     }
+
+    @Override
+    void swapValues(Part other) {
+        super.swapValues(other);
+        InHouse part = (InHouse) other;
+        int machineID = this.machineID;
+        this.machineID = part.machineID;
+        part.machineID = machineID;
+    }
  }
@@ -0,0 +1,184 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A hash table from int IDs to double values, such as prices and costs. It works like IntIntMap, with the values kept
+ * in a double array.
+ */
+class IntDoubleMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private final double missing;
+    private int[] keys;
+    private double[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    /**
+     * @param missing the value get() returns for an ID that is not in the map
+     */
+    IntDoubleMap(double missing) {
+        this.missing = missing;
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new double[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * @return the number of entries in the map
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param key the ID to look up
+     * @return the value stored for the ID, or the missing value
+     */
+    double get(int key) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key)
+                return values[i];
+            i = (i + 1) & mask;
+        }
+        return missing;
+    }
+
+    /**
+     * Stores a value for an ID, replacing any value already stored for it.
+     *
+     * @param key the ID
+     * @param value the value to store
+     */
+    void put(int key, double value) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        used[i] = true;
+        if (++size * 4 > used.length * 3)
+            grow();
+    }
+
+    /**
+     * @param key the ID to look for
+     * @return whether a value is stored for the ID
+     */
+    boolean containsKey(int key) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key)
+                return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Adds an amount to the value stored for an ID, starting from the missing value if there is none.
+     *
+     * @param key the ID
+     * @param amount the amount to add
+     * @return the new value
+     */
+    double add(int key, double amount) {
+        double value = get(key) + amount;
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Removes an ID from the map.
+     *
+     * @param key the ID to remove
+     * @return the value that was stored for the ID, or the missing value
+     */
+    double remove(int key) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) {
+                double value = values[i];
+                shiftBack(i);
+                size--;
+                return value;
+            }
+            i = (i + 1) & mask;
+        }
+        return missing;
+    }
+
+    /**
+     * Removes every entry from the map.
+     */
+    void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (!used[i])
+                break;
+            int home = slot(keys[i]);
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        used[hole] = false;
+    }
+
+    /**
+     * Grows the table once so that it can hold the given number of entries without resizing again.
+     *
+     * @param expected the number of entries the map is about to hold
+     */
+    void ensureCapacity(int expected) {
+        while (expected * 4 > used.length * 3)
+            grow();
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        double[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(oldUsed.length * 2);
+        for (int j = 0; j < oldUsed.length; j++) {
+            if (oldUsed[j]) {
+                int i = slot(oldKeys[j]);
+                while (used[i])
+                    i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+                used[i] = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A hash table from int IDs to int values, such as list positions. It works like IntMap, but the values are kept in
+ * an int array as well, so nothing is boxed.
+ */
+class IntIntMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private final int missing;
+    private int[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    /**
+     * @param missing the value get() returns for an ID that is not in the map
+     */
+    IntIntMap(int missing) {
+        this.missing = missing;
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * @return the number of entries in the map
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param key the ID to look up
+     * @return the value stored for the ID, or the missing value
+     */
+    int get(int key) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key)
+                return values[i];
+            i = (i + 1) & mask;
+        }
+        return missing;
+    }
+
+    /**
+     * Stores a value for an ID, replacing any value already stored for it.
+     *
+     * @param key the ID
+     * @param value the value to store
+     */
+    void put(int key, int value) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        used[i] = true;
+        if (++size * 4 > used.length * 3)
+            grow();
+    }
+
+    /**
+     * Removes an ID from the map.
+     *
+     * @param key the ID to remove
+     * @return the value that was stored for the ID, or the missing value
+     */
+    int remove(int key) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) {
+                int value = values[i];
+                shiftBack(i);
+                size--;
+                return value;
+            }
+            i = (i + 1) & mask;
+        }
+        return missing;
+    }
+
+    /**
+     * Removes every entry from the map.
+     */
+    void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (!used[i])
+                break;
+            int home = slot(keys[i]);
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        used[hole] = false;
+    }
+
+    /**
+     * Grows the table once so that it can hold the given number of entries without resizing again.
+     *
+     * @param expected the number of entries the map is about to hold
+     */
+    void ensureCapacity(int expected) {
+        while (expected * 4 > used.length * 3)
+            grow();
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(oldUsed.length * 2);
+        for (int j = 0; j < oldUsed.length; j++) {
+            if (oldUsed[j]) {
+                int i = slot(oldKeys[j]);
+                while (used[i])
+                    i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+                used[i] = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A hash table keyed by primitive int IDs. Keys are stored in an int array rather than as Integer objects, and
+ * collisions are resolved by linear probing, so a lookup is a hash, an array read and usually one comparison. Null
+ * values are not allowed; an empty slot is marked by a null value.
+ *
+ * @param <V> the type of value stored for each ID
+ */
+class IntMap<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    IntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expected the number of entries the map should hold before it has to grow
+     */
+    IntMap(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expected * 2)
+            capacity <<= 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Spreads the bits of an ID so that sequential IDs do not fill neighbouring slots.
+     *
+     * @param key the ID to hash
+     * @return the starting slot for the ID
+     */
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * @return the number of entries in the map
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value stored for an ID.
+     *
+     * @param key the ID to look up
+     * @return the value, or null if the ID is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        int i = slot(key);
+        Object value;
+        while ((value = values[i]) != null) {
+            if (keys[i] == key)
+                return (V) value;
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * @param key the ID to look up
+     * @return whether the ID is in the map
+     */
+    boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Stores a value for an ID, replacing any value already stored for it.
+     *
+     * @param key the ID
+     * @param value the value to store
+     * @return the value previously stored for the ID, or null
+     */
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        if (value == null)
+            throw new NullPointerException("IntMap does not store null values");
+
+        int i = slot(key);
+        Object current;
+        while ((current = values[i]) != null) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return (V) current;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 4 > values.length * 3)
+            grow();
+        return null;
+    }
+
+    /**
+     * Removes an ID from the map. Entries after the removed one are shifted back so that lookups never have to skip
+     * over deleted markers.
+     *
+     * @param key the ID to remove
+     * @return the value that was stored for the ID, or null
+     */
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        int i = slot(key);
+        Object current;
+        while ((current = values[i]) != null) {
+            if (keys[i] == key) {
+                shiftBack(i);
+                size--;
+                return (V) current;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Passes each value and its ID to the action. The order is the table order, not the ID order.
+     *
+     * @param action the action to run for each entry
+     */
+    @SuppressWarnings("unchecked")
+    void forEach(ObjIntConsumer<? super V> action) {
+        Object[] table = values;
+        for (int i = 0; i < table.length; i++) {
+            if (table[i] != null)
+                action.accept((V) table[i], keys[i]);
+        }
+    }
+
+    /**
+     * Removes every entry from the map.
+     */
+    void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (values[i] == null)
+                break;
+            int home = slot(keys[i]);
+            // move the entry into the hole unless its home slot lies cyclically between the hole and its position
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        values[hole] = null;
+    }
+
+    /**
+     * Grows the table once so that it can hold the given number of entries without resizing again.
+     *
+     * @param expected the number of entries the map is about to hold
+     */
+    void ensureCapacity(int expected) {
+        while (expected * 4 > values.length * 3)
+            grow();
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(oldValues.length * 2);
+        for (int j = 0; j < oldValues.length; j++) {
+            Object value = oldValues[j];
+            if (value != null) {
+                int i = slot(oldKeys[j]);
+                while (values[i] != null)
+                    i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                values[i] = value;
+            }
+        }
+    }
+}
@@ -8,29 +8,304 @@ package model;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
 public class Inventory {
 
-    private static ObservableList<Part> allParts = FXCollections.observableArrayList();
-    private static ObservableList<Product> allProducts = FXCollections.observableArrayList();
+    private static final List<InventoryListener> listeners = new CopyOnWriteArrayList<>();
+
+    private static final WhereUsed whereUsed = new WhereUsed();
+
+    private static final CostRollup costs = new CostRollup(whereUsed);
+
+    private static final BuildPlanner planner = new BuildPlanner(whereUsed);
+
+    private static final StockWatch partStock = new StockWatch();
+
+    private static final StockWatch productStock = new StockWatch();
+
+    private static final PartIndex partIndex = new PartIndex();
+
+    private static final Versions versions = new Versions();
+
+    /**
+     * Held while the indexes and listeners are told about a stock adjustment, so they are told in turn.
+     */
+    private static final Object partAdjustments = new Object();
+
+    private static final Object productAdjustments = new Object();
+
+    private static final Store<Part> allParts = new Store<>(Part::getId, Part::getName, new Store.Observer<Part>() {
+        public void added(Part part) {
+            costs.partPriced(part.getId(), part.getPrice());
+            planner.partStocked(part.getId(), part.getStock());
+            partIndex.update(part);
+            versions.partAdded(part);
+            for (InventoryListener listener : listeners)
+                listener.partAdded(part);
+            watch(part);
+        }
+
+        public void replaced(Part oldPart, Part newPart) {
+            if (oldPart.getId() != newPart.getId()) {
+                costs.partRemoved(oldPart.getId());
+                planner.partRemoved(oldPart.getId());
+                partStock.remove(oldPart.getId());
+                partIndex.remove(oldPart.getId());
+            }
+            costs.partPriced(newPart.getId(), newPart.getPrice());
+            planner.partStocked(newPart.getId(), newPart.getStock());
+            partIndex.update(newPart);
+            versions.partReplaced(oldPart.getId(), newPart);
+            for (InventoryListener listener : listeners)
+                listener.partUpdated(oldPart, newPart);
+            watch(newPart);
+        }
+
+        public void removed(Part part) {
+            costs.partRemoved(part.getId());
+            planner.partRemoved(part.getId());
+            partStock.remove(part.getId());
+            partIndex.remove(part.getId());
+            versions.partRemoved(part.getId());
+            for (InventoryListener listener : listeners)
+                listener.partDeleted(part);
+        }
+
+        public void changing(Part part) {
+            versions.partChanging(part);
+        }
+
+        public void changed(Part part) { }
+    });
+
+    private static final Store<Product> allProducts = new Store<>(Product::getID, Product::getName,
+            new Store.Observer<Product>() {
+        public void added(Product product) {
+            whereUsed.index(product);
+            costs.productChanged(product);
+            planner.productChanged(product);
+            versions.productAdded(product);
+            for (InventoryListener listener : listeners)
+                listener.productAdded(product);
+            watch(product);
+        }
+
+        public void replaced(Product oldProduct, Product newProduct) {
+            if (oldProduct.getID() != newProduct.getID()) {
+                whereUsed.unindex(oldProduct.getID());
+                costs.productRemoved(oldProduct.getID());
+                planner.productRemoved(oldProduct.getID());
+                productStock.remove(oldProduct.getID());
+            }
+            whereUsed.index(newProduct);
+            costs.productChanged(newProduct);
+            planner.productChanged(newProduct);
+            versions.productReplaced(oldProduct.getID(), newProduct);
+            for (InventoryListener listener : listeners)
+                listener.productUpdated(oldProduct, newProduct);
+            watch(newProduct);
+        }
+
+        public void removed(Product product) {
+            whereUsed.unindex(product.getID());
+            costs.productRemoved(product.getID());
+            planner.productRemoved(product.getID());
+            productStock.remove(product.getID());
+            versions.productRemoved(product.getID());
+            for (InventoryListener listener : listeners)
+                listener.productDeleted(product);
+        }
+
+        public void changing(Product product) {
+            versions.productChanging(product);
+        }
+
+        public void changed(Product product) {
+            whereUsed.index(product);
+            costs.productChanged(product);
+            planner.productChanged(product);
+            for (InventoryListener listener : listeners)
+                listener.associatedPartsChanged(product);
+        }
+    });
+
+    private static final IdAllocator autoID = new IdAllocator();
+
+    /**
+     * Sets where the lists returned by getAllParts() and getAllProducts() are brought up to date. The running
+     * application passes Platform::runLater, so the tables only change on the JavaFX thread while parts and products
+     * can be added, updated and deleted from any thread. Until this is called, the lists are updated straight away on
+     * the thread that made the change.
+     *
+     * @param executor runs list refreshes
+     */
+    public static void setViewExecutor(Executor executor) {
+        allParts.setViewExecutor(executor);
+        allProducts.setViewExecutor(executor);
+    }
+
+    /**
+     * Registers a listener that is told about every change to the inventory.
+     *
+     * @param listener the listener to add
+     */
+    public static void addListener(InventoryListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener the listener to remove
+     */
+    public static void removeListener(InventoryListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Lets the listeners finish a change, e.g. wait for it to be written to disk, once the locks are released.
+     */
+    private static void afterChange() {
+        for (InventoryListener listener : listeners)
+            listener.afterChange();
+    }
+
+    /**
+     * Records a part's stock levels in the watch index and tells the listeners if it crossed its min.
+     *
+     * @param part the part that was added or changed
+     */
+    private static void watch(Part part) {
+        int crossed = partStock.update(part.getId(), part.getStock(), part.getMin(), part.getMax());
+        if (crossed == StockWatch.UNCHANGED)
+            return;
+        for (InventoryListener listener : listeners) {
+            if (crossed == StockWatch.BELOW_MIN)
+                listener.partBelowMin(part);
+            else
+                listener.partRestocked(part);
+        }
+    }
 
-    private static int autoID = 0;
+    /**
+     * Records a product's stock levels in the watch index and tells the listeners if it crossed its min.
+     *
+     * @param product the product that was added or changed
+     */
+    private static void watch(Product product) {
+        int crossed = productStock.update(product.getID(), product.getStock(), product.getMin(), product.getMax());
+        if (crossed == StockWatch.UNCHANGED)
+            return;
+        for (InventoryListener listener : listeners) {
+            if (crossed == StockWatch.BELOW_MIN)
+                listener.productBelowMin(product);
+            else
+                listener.productRestocked(product);
+        }
+    }
+
+    private static List<Part> partsOf(int[] partIDs) {
+        List<Part> parts = new ArrayList<>(partIDs.length);
+        for (int partID : partIDs) {
+            Part part = allParts.get(partID);
+            if (part != null)
+                parts.add(part);
+        }
+        return parts;
+    }
+
+    private static List<Product> productsOf(int[] productIDs) {
+        List<Product> products = new ArrayList<>(productIDs.length);
+        for (int productID : productIDs) {
+            Product product = allProducts.get(productID);
+            if (product != null)
+                products.add(product);
+        }
+        return products;
+    }
+
+    /**
+     * Changes the associated parts of a product under the products read lock, after letting any open snapshot keep
+     * the product as it was. Product calls this for every change to its bill of materials, and then
+     * associatedPartsChanged().
+     *
+     * @param product the product whose associated parts are changing
+     * @param change makes the change
+     * @return the result of the change
+     */
+    static boolean associatedPartsChanging(Product product, BooleanSupplier change) {
+        return allProducts.read(() -> {
+            versions.productChanging(product);
+            return change.getAsBoolean();
+        });
+    }
+
+    /**
+     * Tells the listeners that the associated parts of a product changed, if the product is in the inventory.
+     *
+     * @param product the product whose associated parts changed
+     */
+    static void associatedPartsChanged(Product product) {
+        if (allProducts.touch(product))
+            afterChange();
+    }
 
     /**
      * Adds a Part object to the inventory list allParts.
      *
      * @param newPart the part to add to the list of all parts
+     * @throws IllegalArgumentException if a part with the same ID is already in the inventory
      */
     public static void addPart(Part newPart) {
+        autoID.seed(newPart.getId());
         allParts.add(newPart);
+        afterChange();
     }
 
     /**
      * Adds a Product object to the inventory list allProducts.
      *
      * @param newProduct the product to add to the list of all products
+     * @throws IllegalArgumentException if a product with the same ID is already in the inventory
      */
     public static void addProduct(Product newProduct) {
+        autoID.seed(newProduct.getID());
         allProducts.add(newProduct);
+        afterChange();
+    }
+
+    /**
+     * Adds a batch of parts to the inventory. The whole batch is added under one lock and reaches the tables as a
+     * single change, so loading many parts lays the table out once instead of once per part.
+     *
+     * @param newParts the parts to add to the list of all parts
+     * @throws IllegalArgumentException if an ID is already in the inventory or repeated in the batch; no part is added
+     */
+    public static void addParts(Collection<? extends Part> newParts) {
+        for (Part part : newParts)
+            autoID.seed(part.getId());
+        allParts.addAll(newParts);
+        afterChange();
+    }
+
+    /**
+     * Adds a batch of products to the inventory as a single change.
+     *
+     * @param newProducts the products to add to the list of all products
+     * @throws IllegalArgumentException if an ID is already in the inventory or repeated in the batch; no product is
+     * added
+     */
+    public static void addProducts(Collection<? extends Product> newProducts) {
+        for (Product product : newProducts)
+            autoID.seed(product.getID());
+        allProducts.addAll(newProducts);
+        afterChange();
     }
 
     /**
@@ -43,18 +318,15 @@ public class Inventory {
      * matching ID. When the user entered an integer that was larger than the size of the ObservableList, the function
      * threw an IndexOutOfBounds exception.
      *
-     * The corrected function iterates through the list of all parts until it finds the part with the matching part ID.
-     * If the part is found, it returns the part, otherwise it returns null.
+     * The corrected function looks the part up by its part ID rather than its position. Parts are kept in a hash table
+     * keyed by ID alongside the list, so the lookup takes the same time no matter how many parts are in inventory. If
+     * the part is found, it returns the part, otherwise it returns null.
      *
      * @param partID the partID to lookup
      * @return the part with matching partID
      */
     public static Part lookupPart(int partID) {
-        for (Part part : allParts) {
-            if (part.getId() == partID)
-                return part;
-        }
-        return null;
+        return allParts.get(partID);
     }
 
     /**
@@ -64,28 +336,20 @@ public class Inventory {
      * @return the product with matching productID
      */
     public static Product lookupProduct (int productID) {
-        for (Product product : allProducts) {
-            if (product.getID() == productID)
-                return product;
-        }
-        return null;
+        return allProducts.get(productID);
     }
 
     /**
      * Returns a list of parts that contain some or all of a part name searched for by the user.
      *
+     * Names are matched through a trigram index, so only parts whose names share every three-character piece of the
+     * query are checked. Queries of one or two characters are checked against every name.
+     *
      * @param partName user-entered String to search
      * @return the list of parts containing the user-entered String
      */
     public static ObservableList<Part> lookupPart(String partName) {
-        ObservableList<Part> partsSubset = FXCollections.observableArrayList();
-
-        for (Part search : allParts) {
-            if (search.getName().toLowerCase().contains(partName.toLowerCase())) {
-                partsSubset.add(search);
-            }
-        }
-        return partsSubset;
+        return FXCollections.observableArrayList(allParts.search(partName));
     }
 
     /**
@@ -95,14 +359,26 @@ public class Inventory {
      * @return the list of products containing the user-entered String
      */
     public static ObservableList<Product> lookupProduct(String productName) {
-        ObservableList<Product> productSubset = FXCollections.observableArrayList();
+        return FXCollections.observableArrayList(allProducts.search(productName));
+    }
 
-        for (Product search : allProducts) {
-            if (search.getName().toLowerCase().contains(productName.toLowerCase())) {
-                productSubset.add(search);
-            }
-        }
-        return productSubset;
+    /**
+     * Returns how many parts the last part name search had to check. Compared with the number of parts in inventory,
+     * this shows how much the name index narrowed the search.
+     *
+     * @return the candidate count of the last part name search
+     */
+    public static int getLastPartSearchCandidates() {
+        return allParts.lastSearchCandidates();
+    }
+
+    /**
+     * Returns how many products the last product name search had to check.
+     *
+     * @return the candidate count of the last product name search
+     */
+    public static int getLastProductSearchCandidates() {
+        return allProducts.lastSearchCandidates();
     }
 
     /**
@@ -110,9 +386,11 @@ public class Inventory {
      *
      * @param index the index of the part to be updated
      * @param selectedPart the updated part
+     * @throws IllegalArgumentException if another part in the inventory has the updated part's ID
      */
     public static void updatePart(int index, Part selectedPart) {
         allParts.set(index, selectedPart);
+        afterChange();
     }
 
     /**
@@ -120,9 +398,220 @@ public class Inventory {
      *
      * @param index the index of the part to be updated
      * @param newProduct the updated product
+     * @throws IllegalArgumentException if another product in the inventory has the updated product's ID
      */
     public static void updateProduct(int index, Product newProduct) {
         allProducts.set(index, newProduct);
+        afterChange();
+    }
+
+    /**
+     * Replaces the part that has the given part ID. The part's position in the list is found through the slot map
+     * instead of a search, so saving a modified part takes the same time no matter how many parts are in inventory.
+     *
+     * @param partID the ID of the part to be updated
+     * @param selectedPart the updated part
+     * @return boolean representing whether a part with the ID was found and updated
+     * @throws IllegalArgumentException if another part in the inventory has the updated part's ID
+     */
+    public static boolean updatePartById(int partID, Part selectedPart) {
+        boolean result = allParts.replace(partID, selectedPart);
+        afterChange();
+        return result;
+    }
+
+    /**
+     * Replaces the product that has the given product ID.
+     *
+     * @param productID the ID of the product to be updated
+     * @param newProduct the updated product
+     * @return boolean representing whether a product with the ID was found and updated
+     * @throws IllegalArgumentException if another product in the inventory has the updated product's ID
+     */
+    public static boolean updateProductById(int productID, Product newProduct) {
+        boolean result = allProducts.replace(productID, newProduct);
+        afterChange();
+        return result;
+    }
+
+    /**
+     * Saves new values for the part that has the same ID as changes. If the part in inventory is of the same class, its
+     * values are written in place: the part object stays the same, so the tables and every product using it see the
+     * new values at once, and the save is one lookup by ID and one write. Afterwards changes holds the part's previous
+     * values, which listeners receive as the old part. If the class differs, e.g. an InHouse part is saved as
+     * Outsourced, changes replaces the part instead.
+     *
+     * @param changes a part holding the ID and the new values
+     * @return boolean representing whether a part with the ID was found and updated
+     */
+    public static boolean modifyPart(Part changes) {
+        boolean result = allParts.modify(changes, Part::swapValues) || allParts.replace(changes.getId(), changes);
+        afterChange();
+        return result;
+    }
+
+    /**
+     * Adds to or takes away from a part's stock, e.g. when parts are received or used on the line. The stock is changed
+     * with one atomic add, under the shared parts read lock, so any number of threads can adjust stock at once without
+     * losing an adjustment and without holding up the tables, searches or reports. A stock that goes to or below min
+     * or above max is not refused; the listeners are told through partBelowMin() or partOverMax() instead.
+     *
+     * The indexes and listeners are told of one adjustment at a time, each time with the part's stock as it is then,
+     * so they always end up with the latest stock whatever order the adjustments finish in.
+     *
+     * @param partID the ID of the part
+     * @param delta the amount to add, negative to take stock away
+     * @return boolean representing whether a part with the ID was found and adjusted
+     */
+    public static boolean adjustPartStock(int partID, int delta) {
+        boolean result = allParts.adjust(partID, part -> {
+            versions.partChanging(part);
+            int before = part.addStock(delta);
+            partStockAdjusted(part, before, before + delta);
+        });
+        afterChange();
+        return result;
+    }
+
+    /**
+     * Adds to or takes away from a product's stock, as adjustPartStock() does for parts.
+     *
+     * @param productID the ID of the product
+     * @param delta the amount to add, negative to take stock away
+     * @return boolean representing whether a product with the ID was found and adjusted
+     */
+    public static boolean adjustProductStock(int productID, int delta) {
+        boolean result = allProducts.adjust(productID, product -> {
+            versions.productChanging(product);
+            int before = product.addStock(delta);
+            productStockAdjusted(product, before, before + delta);
+        });
+        afterChange();
+        return result;
+    }
+
+    /**
+     * Builds units of a product: its associated parts are taken out of stock and the units are added to its stock, all
+     * at once or not at all. See buildProducts().
+     *
+     * @param productID the ID of the product
+     * @param units the number of units to build
+     * @return boolean representing whether the units were built; false if the product is not in inventory, units is
+     * not above zero, or there is not enough of some part
+     */
+    public static boolean buildProduct(int productID, int units) {
+        return buildProducts(new int[] {productID}, new int[] {units});
+    }
+
+    /**
+     * Builds units of several products as one transaction: every part they use is taken out of stock and every
+     * product's stock goes up, or, if there is not enough of any part, nothing changes. A part is never taken below
+     * zero, however many builds and stock adjustments run at once.
+     *
+     * The build runs under the shared read locks of the parts and the products, like adjustPartStock(), so it holds up
+     * neither readers nor other builds. It reads each stock's version, checks there is enough of every part, and then
+     * takes each stock only if its version has not moved on, starting again if one has. getBuildStats() counts the
+     * builds, and how often they had to start again. Listeners are told of each stock changed through
+     * partStockAdjusted() and productStockAdjusted(). A snapshot from openSnapshot() sees all of a build or none of it.
+     *
+     * @param productIDs the IDs of the products to build
+     * @param units the number of units of each product to build
+     * @return boolean representing whether the units were built; false if a product is not in inventory, a number of
+     * units is not above zero, or there is not enough of some part
+     */
+    public static boolean buildProducts(int[] productIDs, int[] units) {
+        if (productIDs.length != units.length)
+            throw new IllegalArgumentException("productIDs and units differ in length");
+        boolean result = allParts.read(() -> allProducts.read(() -> {
+            Product[] products = new Product[productIDs.length];
+            for (int i = 0; i < productIDs.length; i++) {
+                products[i] = allProducts.get(productIDs[i]);
+                if (products[i] == null)
+                    return false;
+            }
+            BuildTransaction build = BuildTransaction.plan(products, units, allParts::get);
+            if (build == null)
+                return false;
+            versions.building(build);
+            if (!build.run())
+                return false;
+
+            for (int i = 0; i < build.partCount(); i++) {
+                Part part = build.part(i);
+                allParts.adjusted(part);
+                partStockAdjusted(part, build.partStockBefore(i), build.partStockBefore(i) - build.partNeed(i));
+            }
+            for (int i = 0; i < build.productCount(); i++) {
+                Product product = build.product(i);
+                allProducts.adjusted(product);
+                productStockAdjusted(product, build.productStockBefore(i),
+                        build.productStockBefore(i) + build.productUnits(i));
+            }
+            return true;
+        }));
+        afterChange();
+        return result;
+    }
+
+    /**
+     * @return the number of builds committed and refused so far, how often they had to start again, and the rate they
+     * committed at
+     */
+    public static BuildStats getBuildStats() {
+        return BuildTransaction.stats();
+    }
+
+    private static void partStockAdjusted(Part part, int before, int after) {
+        synchronized (partAdjustments) {
+            int stock = part.getStock();
+            planner.partStocked(part.getId(), stock);
+            partIndex.update(part);
+            for (InventoryListener listener : listeners)
+                listener.partStockAdjusted(part, stock);
+            watch(part);
+            if (before <= part.getMax() && after > part.getMax()) {
+                for (InventoryListener listener : listeners)
+                    listener.partOverMax(part);
+            }
+        }
+    }
+
+    private static void productStockAdjusted(Product product, int before, int after) {
+        synchronized (productAdjustments) {
+            int stock = product.getStock();
+            for (InventoryListener listener : listeners)
+                listener.productStockAdjusted(product, stock);
+            watch(product);
+            if (before <= product.getMax() && after > product.getMax()) {
+                for (InventoryListener listener : listeners)
+                    listener.productOverMax(product);
+            }
+        }
+    }
+
+    /**
+     * Replaces a batch of parts, each matched by part ID, as a single change. Parts whose ID is not in the inventory
+     * are skipped.
+     *
+     * @param updatedParts the updated parts
+     * @return the number of parts updated
+     */
+    public static int updateParts(Collection<? extends Part> updatedParts) {
+        int result = allParts.replaceAll(updatedParts);
+        afterChange();
+        return result;
+    }
+
+    /**
+     * Replaces a batch of products, each matched by product ID, as a single change.
+     *
+     * @param updatedProducts the updated products
+     * @return the number of products updated
+     */
+    public static int updateProducts(Collection<? extends Product> updatedProducts) {
+        int result = allProducts.replaceAll(updatedProducts);
+        afterChange();
+        return result;
     }
 
     /**
@@ -132,7 +621,26 @@ public class Inventory {
      * @return boolean representing whether the deletion was successful
      */
     public static boolean deletePart (Part selectedPart) {
-        return allParts.remove(selectedPart);
+        boolean result = allParts.remove(selectedPart);
+        afterChange();
+        return result;
+    }
+
+    /**
+     * Deletes a part from the inventory after removing it from every product it is associated with. Only the products
+     * that use the part are visited, found through the where-used index.
+     *
+     * @param selectedPart the part to be deleted
+     * @return boolean representing whether the deletion was successful
+     */
+    public static boolean deletePartCascade(Part selectedPart) {
+        int partID = selectedPart.getId();
+        for (int productID : whereUsed.productsUsing(partID)) {
+            Product product = allProducts.get(productID);
+            if (product != null)
+                product.removeAssociatedPart(partID);
+        }
+        return deletePart(selectedPart);
     }
 
     /**
@@ -142,42 +650,350 @@ public class Inventory {
      * @return boolean representing whether the deletion was successful
      */
     public static boolean deleteProduct (Product selectedProduct) {
-        return allProducts.remove(selectedProduct);
+        boolean result = allProducts.remove(selectedProduct);
+        afterChange();
+        return result;
+    }
+
+    /**
+     * Returns the products in inventory that a part is associated with. Products are found through a reverse index
+     * kept from part ID to product IDs, so this costs as much as the number of products using the part, not the
+     * number of products in inventory.
+     *
+     * @param partID the ID of the part
+     * @return the products using the part, in product ID order
+     */
+    public static List<Product> lookupProductsUsing(int partID) {
+        return productsOf(whereUsed.productsUsing(partID));
+    }
+
+    /**
+     * Returns how many products in inventory a part is associated with.
+     *
+     * @param partID the ID of the part
+     * @return the number of products using the part
+     */
+    public static int getUseCount(int partID) {
+        return whereUsed.useCount(partID);
+    }
+
+    /**
+     * Returns the cost of a product's parts: the price of each associated part times its quantity. For a product in
+     * inventory the cost is kept up to date as part prices change, so this is a lookup; for any other product, e.g. one
+     * being built in the Add Product form, the parts are summed.
+     *
+     * @param product the product
+     * @return the cost of the product's parts
+     */
+    public static double getPartsCost(Product product) {
+        return costs.cost(product);
+    }
+
+    /**
+     * Returns the products in inventory whose price is below the cost of their parts. The set is kept as part prices
+     * and products change, so this costs as much as the number of products returned.
+     *
+     * @return the products priced below cost, in product ID order
+     */
+    public static List<Product> lookupProductsBelowCost() {
+        return productsOf(costs.belowCost());
+    }
+
+    /**
+     * Returns the parts at or below their min, i.e. due for reordering. The parts are kept ordered by stock - min as
+     * their stock changes, so this costs as much as the number of parts returned.
+     *
+     * @return the parts at or below their min, fewest to spare first
+     */
+    public static List<Part> lookupPartsBelowMin() {
+        return partsOf(partStock.atOrBelowMin());
+    }
+
+    /**
+     * @param count the most parts to return
+     * @return the parts with the least stock to spare over their min, fewest first
+     */
+    public static List<Part> lookupPartsClosestToStockout(int count) {
+        return partsOf(partStock.closestToStockout(count));
+    }
+
+    /**
+     * @return the parts whose stock is over their max, furthest over first
+     */
+    public static List<Part> lookupPartsOverMax() {
+        return partsOf(partStock.overMax());
     }
 
     /**
-     * Returns the full inventory of parts.
+     * Returns the parts that meet every condition of a query, e.g. the parts priced between two amounts, with stock
+     * below some level, or from one company. The parts are indexed by price, stock, company name and machine ID, and a
+     * query starts from whichever of its conditions matches the fewest parts, so it costs about as much as the number
+     * of parts that condition matches rather than a pass over the inventory.
+     *
+     * @param query the conditions to match
+     * @return the matching parts, in part ID order
+     */
+    public static List<Part> lookupParts(PartQuery query) {
+        return partsOf(partIndex.find(query));
+    }
+
+    /**
+     * Returns how many parts the last lookupParts() query had to check against all of its conditions.
+     *
+     * @return the candidate count of the last part query
+     */
+    public static int getLastPartQueryCandidates() {
+        return partIndex.lastCandidateCount();
+    }
+
+    /**
+     * Returns the products at or below their min. Like lookupPartsBelowMin(), this costs as much as the number of
+     * products returned.
+     *
+     * @return the products at or below their min, fewest to spare first
+     */
+    public static List<Product> lookupProductsBelowMin() {
+        return productsOf(productStock.atOrBelowMin());
+    }
+
+    /**
+     * @param count the most products to return
+     * @return the products with the least stock to spare over their min, fewest first
+     */
+    public static List<Product> lookupProductsClosestToStockout(int count) {
+        return productsOf(productStock.closestToStockout(count));
+    }
+
+    /**
+     * @return the products whose stock is over their max, furthest over first
+     */
+    public static List<Product> lookupProductsOverMax() {
+        return productsOf(productStock.overMax());
+    }
+
+    /**
+     * Returns the latest snapshot of how many units of each product can be built from the parts in stock. Reading it
+     * takes no lock. Stock and product changes are folded in by a refresh on the fork-join pool shortly after they are
+     * made, which recomputes only the products they affect, so the snapshot may briefly lag the inventory.
+     *
+     * @return the latest buildable quantities
+     */
+    public static BuildableQuantities getBuildableQuantities() {
+        return planner.current();
+    }
+
+    /**
+     * Folds every change made so far into the buildable quantities on the calling thread and returns the result, for
+     * callers that need it to match the inventory exactly.
+     *
+     * @return the buildable quantities as of this call
+     */
+    public static BuildableQuantities refreshBuildableQuantities() {
+        return planner.refresh();
+    }
+
+    /**
+     * Returns the full inventory of parts. The list is a view for the tables: it is refreshed on the view executor, so
+     * right after a change made on another thread it may not show that change yet. It is read-only and holds no parts
+     * of its own; a table reads only the rows it shows. Use sortParts() to sort it.
      *
      * @return the list of all parts
      */
     public static ObservableList<Part> getAllParts() {
-        return allParts;
+        return allParts.view();
     }
 
     /**
-     * Returns the full inventory of products.
+     * Returns the full inventory of products. Like getAllParts(), the list is a read-only view refreshed on the view
+     * executor.
      *
      * @return the list of all products
      */
     public static ObservableList<Product> getAllProducts() {
-        return allProducts;
+        return allProducts.view();
+    }
+
+    /**
+     * Returns the parts matching a search box query, as a view for the tables. A query that is a number is looked up
+     * as a part ID; any other query matches the parts whose names contain it, found through the name index. A blank
+     * query returns getAllParts(). The view holds only the IDs of the matching parts and drops parts that are deleted,
+     * but does not take in parts added after the search.
+     *
+     * @param query the user-entered String to search
+     * @return the matching parts
+     */
+    public static ObservableList<Part> filterParts(String query) {
+        if (query.isBlank())
+            return allParts.view();
+        return allParts.filter(matches(allParts, query));
     }
 
     /**
-     * Generates a unique ID for a Part or Project.
+     * Returns the products matching a search box query, as filterParts() does for parts.
+     *
+     * @param query the user-entered String to search
+     * @return the matching products
+     */
+    public static ObservableList<Product> filterProducts(String query) {
+        if (query.isBlank())
+            return allProducts.view();
+        return allProducts.filter(matches(allProducts, query));
+    }
+
+    /**
+     * Prepares a parts search for a search box that searches as the user types. This is called on the JavaFX thread
+     * with the list the table shows and the query it was found by, and the returned search can then run on any thread.
+     * It gives the same parts as filterParts(query), except that when the new query is a name query that contains the
+     * earlier one, only the parts already shown are checked, which may leave them in the order the table had them in
+     * rather than in ID order. In that case parts added or renamed since the earlier search are not picked up until
+     * the search box is cleared.
+     *
+     * @param query the user-entered String to search
+     * @param shown the list the table shows
+     * @param shownQuery the query that list was found by, or "" if it is getAllParts()
+     * @return the search, which returns the matching parts
+     */
+    public static Supplier<ObservableList<Part>> searchParts(String query, ObservableList<Part> shown,
+                                                             String shownQuery) {
+        return search(allParts, query, shown, shownQuery);
+    }
+
+    /**
+     * Prepares a products search for a search box that searches as the user types, as searchParts() does for parts.
+     *
+     * @param query the user-entered String to search
+     * @param shown the list the table shows
+     * @param shownQuery the query that list was found by, or "" if it is getAllProducts()
+     * @return the search, which returns the matching products
+     */
+    public static Supplier<ObservableList<Product>> searchProducts(String query, ObservableList<Product> shown,
+                                                                   String shownQuery) {
+        return search(allProducts, query, shown, shownQuery);
+    }
+
+    private static <T> Supplier<ObservableList<T>> search(Store<T> store, String query, ObservableList<T> shown,
+                                                          String shownQuery) {
+        if (query.isBlank())
+            return store::view;
+        int[] shownIDs = narrows(shownQuery, query) ? store.filterIDs(shown) : null;
+        if (shownIDs != null)
+            return () -> store.filter(store.refineIDs(shownIDs, query));
+        return () -> store.filter(matches(store, query));
+    }
+
+    /**
+     * @return whether every name matching query also matches shownQuery, with neither an ID lookup
+     */
+    private static boolean narrows(String shownQuery, String query) {
+        if (shownQuery.isBlank() || isID(shownQuery) || isID(query))
+            return false;
+        return query.toLowerCase().contains(shownQuery.toLowerCase());
+    }
+
+    private static boolean isID(String query) {
+        try {
+            Integer.parseInt(query.trim());
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static int[] matches(Store<?> store, String query) {
+        try {
+            int id = Integer.parseInt(query.trim());
+            return store.get(id) == null ? new int[0] : new int[] {id};
+        } catch (NumberFormatException e) {
+            return store.searchIDs(query);
+        }
+    }
+
+    /**
+     * Sorts a list returned by getAllParts() or filterParts(), for a table's sort policy. The parts are compared once
+     * and the list keeps only their IDs in the new order; with no comparator, the list goes back to inventory order.
+     *
+     * @param parts the list to sort
+     * @param comparator the order to sort the parts in, or null
+     * @return whether the list was sorted; false if it did not come from getAllParts() or filterParts()
+     */
+    public static boolean sortParts(ObservableList<Part> parts, Comparator<? super Part> comparator) {
+        return allParts.sort(parts, comparator);
+    }
+
+    /**
+     * Sorts a list returned by getAllProducts() or filterProducts(), as sortParts() does for parts.
+     *
+     * @param products the list to sort
+     * @param comparator the order to sort the products in, or null
+     * @return whether the list was sorted
+     */
+    public static boolean sortProducts(ObservableList<Product> products, Comparator<? super Product> comparator) {
+        return allProducts.sort(products, comparator);
+    }
+
+    /**
+     * Opens a snapshot of every part and product as they are now, for a report or save that takes a while. Opening it
+     * doesn't copy the inventory; it takes the parts and products write locks just long enough for the changes in
+     * progress to finish, and the snapshot keeps showing the parts and products as they were while they go on
+     * changing. Close it when done.
+     *
+     * @return the snapshot
+     */
+    public static InventorySnapshot openSnapshot() {
+        return allParts.write(() -> allProducts.write(() -> new InventorySnapshot(versions)));
+    }
+
+    /**
+     * @return the number of snapshots opened and not yet closed
+     */
+    public static int getOpenSnapshotCount() {
+        return versions.readers();
+    }
+
+    /**
+     * Returns a copy of every part, taken under the parts lock. Background jobs use this instead of getAllParts(),
+     * which belongs to the JavaFX thread.
+     *
+     * @return the list of all parts at the time of the call
+     */
+    public static List<Part> getPartsSnapshot() {
+        return allParts.snapshot();
+    }
+
+    /**
+     * Returns a copy of every product, taken under the products lock.
+     *
+     * @return the list of all products at the time of the call
+     */
+    public static List<Product> getProductsSnapshot() {
+        return allProducts.snapshot();
+    }
+
+    /**
+     * Generates a unique ID for a Part or Project. IDs come from an atomic counter, so this is safe to call from any
+     * thread. Adding a part or product moves the counter past its ID, so loaded items are never given a duplicate.
      *
      * @return the ID
      */
     public static int getAutoID() {
-        autoID = autoID + 1;
-        return autoID;
+        return autoID.next();
+    }
+
+    /**
+     * Reserves a block of unique IDs for a bulk load, so the loader can number its items without asking for each ID.
+     *
+     * @param count the number of IDs to reserve
+     * @return the first ID of the block; the block runs up to this value plus count minus one
+     */
+    public static int reserveAutoIDs(int count) {
+        return autoID.reserve(count);
     }
 
     /**
      * Returns the index of a selected Part.
      *
      * @param part the selected part
-     * @return the index of the part
+     * @return the index of the part, or -1 if it is not in the inventory
      */
     public static int getPartIndex(Part part) {
         return allParts.indexOf(part);
@@ -187,7 +1003,7 @@ public class Inventory {
      * Returns the index of a selected Product.
      *
      * @param product the selected part
-     * @return the index of the part
+     * @return the index of the part, or -1 if it is not in the inventory
      */
     public static int getProductIndex(Product product) {
         return allProducts.indexOf(product);
@@ -0,0 +1,124 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+/**
+ * Receives every change made to the inventory. Listeners are registered with Inventory.addListener().
+ *
+ * The change methods are called while the lock of the changed Store is held, so a listener sees the changes to the
+ * parts, or to the products, in the same order they were made. They must be quick and must not call back into
+ * Inventory to change it. afterChange() is called once the locks are released, on the thread that made the change,
+ * and may block.
+ */
+public interface InventoryListener {
+
+    /**
+     * @param part the part that was added
+     */
+    default void partAdded(Part part) { }
+
+    /**
+     * @param oldPart the part that was replaced
+     * @param newPart the part that replaced it
+     */
+    default void partUpdated(Part oldPart, Part newPart) { }
+
+    /**
+     * @param part the part that was deleted
+     */
+    default void partDeleted(Part part) { }
+
+    /**
+     * @param product the product that was added
+     */
+    default void productAdded(Product product) { }
+
+    /**
+     * @param oldProduct the product that was replaced
+     * @param newProduct the product that replaced it
+     */
+    default void productUpdated(Product oldProduct, Product newProduct) { }
+
+    /**
+     * @param product the product that was deleted
+     */
+    default void productDeleted(Product product) { }
+
+    /**
+     * Called when a part is associated with, or removed from, a product that is in the inventory.
+     *
+     * @param product the product whose associated parts changed
+     */
+    default void associatedPartsChanged(Product product) { }
+
+    /**
+     * Called when a part's stock falls to or below its min, or a part is added with its stock there, right after the
+     * change that did it is reported.
+     *
+     * @param part the part that needs reordering
+     */
+    default void partBelowMin(Part part) { }
+
+    /**
+     * Called when a part's stock was at or below its min and has risen above it.
+     *
+     * @param part the restocked part
+     */
+    default void partRestocked(Part part) { }
+
+    /**
+     * Called when a product's stock falls to or below its min, or a product is added with its stock there, right after
+     * the change that did it is reported.
+     *
+     * @param product the product that needs building
+     */
+    default void productBelowMin(Product product) { }
+
+    /**
+     * Called when a product's stock was at or below its min and has risen above it.
+     *
+     * @param product the restocked product
+     */
+    default void productRestocked(Product product) { }
+
+    /**
+     * Called when a part's stock is adjusted by Inventory.adjustPartStock(). Adjustments of the same part can be made
+     * at the same time, so the stock passed is the part's stock when the call is made, which may already include later
+     * adjustments; the last call for a part always has its current stock. Called under the parts read lock rather than
+     * the write lock.
+     *
+     * @param part the part whose stock changed
+     * @param stock the part's stock
+     */
+    default void partStockAdjusted(Part part, int stock) { }
+
+    /**
+     * Called when an adjustment takes a part's stock above its max. The adjustment is made regardless.
+     *
+     * @param part the part that is overstocked
+     */
+    default void partOverMax(Part part) { }
+
+    /**
+     * Called when a product's stock is adjusted by Inventory.adjustProductStock(), as partStockAdjusted() is for parts.
+     *
+     * @param product the product whose stock changed
+     * @param stock the product's stock
+     */
+    default void productStockAdjusted(Product product, int stock) { }
+
+    /**
+     * Called when an adjustment takes a product's stock above its max. The adjustment is made regardless.
+     *
+     * @param product the product that is overstocked
+     */
+    default void productOverMax(Product product) { }
+
+    /**
+     * Called after each change, or batch of changes, once the inventory locks are released.
+     */
+    default void afterChange() { }
+}
@@ -0,0 +1,122 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The parts and products as they were at one moment, for long reports and saves. Opening a snapshot takes the same
+ * short time however big the inventory is; it only waits for changes already in progress to finish. It holds up no one
+ * while it is read: parts and products can be added, changed, deleted and built, and it goes on showing them as they
+ * were when it was opened.
+ *
+ * The parts and products it returns are fresh copies, made as they are asked for. Changing them changes neither the
+ * snapshot nor the inventory, and getAssociatedParts() on a product looks its parts up in the live inventory; use
+ * getAssociatedPartLines() and lookupPart() to stay within the snapshot.
+ *
+ * Close a snapshot once it is no longer needed, best with try-with-resources, so the versions only it was reading can
+ * be reclaimed. A closed snapshot can't be read.
+ */
+public final class InventorySnapshot implements AutoCloseable {
+    private final Versions versions;
+    private volatile Versions.Version version;
+
+    InventorySnapshot(Versions versions) {
+        this.versions = versions;
+        version = versions.acquire();
+    }
+
+    private Versions.Version version() {
+        Versions.Version current = version;
+        if (current == null)
+            throw new IllegalStateException("snapshot is closed");
+        return current;
+    }
+
+    /**
+     * @param partID the ID of the part
+     * @return the part as it was, or null if there was no part with the ID
+     */
+    public Part lookupPart(int partID) {
+        Versions.Version current = version();
+        Part part = current.parts.get(partID);
+        return part == null ? null : versions.partAsOf(current, part);
+    }
+
+    /**
+     * @param productID the ID of the product
+     * @return the product as it was, or null if there was no product with the ID
+     */
+    public Product lookupProduct(int productID) {
+        Versions.Version current = version();
+        Product product = current.products.get(productID);
+        return product == null ? null : versions.productAsOf(current, product);
+    }
+
+    /**
+     * @return the number of parts
+     */
+    public int getPartCount() {
+        return version().parts.size();
+    }
+
+    /**
+     * @return the number of products
+     */
+    public int getProductCount() {
+        return version().products.size();
+    }
+
+    /**
+     * Walks the parts without copying them into a list.
+     *
+     * @param action called with each part, in part ID order
+     */
+    public void forEachPart(Consumer<? super Part> action) {
+        Versions.Version current = version();
+        current.parts.forEach(part -> action.accept(versions.partAsOf(current, part)));
+    }
+
+    /**
+     * @param action called with each product, in product ID order
+     */
+    public void forEachProduct(Consumer<? super Product> action) {
+        Versions.Version current = version();
+        current.products.forEach(product -> action.accept(versions.productAsOf(current, product)));
+    }
+
+    /**
+     * @return every part, in part ID order
+     */
+    public List<Part> getParts() {
+        List<Part> parts = new ArrayList<>(getPartCount());
+        forEachPart(parts::add);
+        return Collections.unmodifiableList(parts);
+    }
+
+    /**
+     * @return every product, in product ID order
+     */
+    public List<Product> getProducts() {
+        List<Product> products = new ArrayList<>(getProductCount());
+        forEachProduct(products::add);
+        return Collections.unmodifiableList(products);
+    }
+
+    /**
+     * Releases the snapshot. Closing it again does nothing.
+     */
+    @Override
+    public synchronized void close() {
+        if (version != null) {
+            versions.release(version);
+            version = null;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import java.util.Arrays;
+
+/**
+ * An inverted index for searching names by substring. Every name is lower-cased once, when it is added, and broken
+ * into overlapping three-character pieces (trigrams). Each trigram has a posting set of the IDs whose names contain
+ * it. A query only has to check the IDs in the smallest posting set among its own trigrams, instead of every name.
+ *
+ * Queries shorter than three characters have no trigrams to look up, so they fall back to scanning the stored
+ * lower-case names. Nothing is allocated per name during either kind of search.
+ *
+ * Large batches, such as a snapshot load, can be added with addLater(). Those names are only broken into trigrams
+ * when the index is next searched or changed, or when buildPending() is called from a background thread, so loading
+ * does not have to wait for the index.
+ */
+class NameIndex {
+    /**
+     * The length of the pieces names are broken into. Shorter queries are answered by a scan.
+     */
+    static final int GRAM = 3;
+
+    private static final int[] NONE = new int[0];
+
+    private final IntMap<String> lowerNames = new IntMap<>();
+    private final IntMap<SortedIntSet> postings = new IntMap<>();
+    private volatile int lastCandidates;
+
+    private int[] pendingIDs = NONE;
+    private String[] pendingNames = new String[0];
+    private volatile int pendingCount;
+
+    /**
+     * Packs three characters into one posting key. Characters beyond the low ten bits can make two trigrams share a
+     * key; that only adds candidates, which are always checked against the full name.
+     */
+    private static int gram(String s, int i) {
+        return (s.charAt(i) << 20) ^ (s.charAt(i + 1) << 10) ^ s.charAt(i + 2);
+    }
+
+    private static String lower(String name) {
+        return name == null ? "" : name.toLowerCase();
+    }
+
+    /**
+     * @return the number of names in the index
+     */
+    int size() {
+        return lowerNames.size() + pendingCount;
+    }
+
+    /**
+     * Adds a name to the index, replacing any name already indexed for the ID. If the name is unchanged, the
+     * postings are left as they are, so updating a part without renaming it costs no index work.
+     *
+     * @param id the ID of the part or product
+     * @param name the name to index
+     */
+    void add(int id, String name) {
+        buildPending();
+        index(id, name);
+    }
+
+    private void index(int id, String name) {
+        String lowerName = lower(name);
+        if (lowerName.equals(lowerNames.get(id)))
+            return;
+        unindex(id);
+        lowerNames.put(id, lowerName);
+        for (int i = 0; i + GRAM <= lowerName.length(); i++) {
+            int key = gram(lowerName, i);
+            SortedIntSet ids = postings.get(key);
+            if (ids == null) {
+                ids = new SortedIntSet();
+                postings.put(key, ids);
+            }
+            ids.add(id);
+        }
+    }
+
+    /**
+     * Queues a name to be indexed later. The caller must not already have a name indexed for the ID.
+     *
+     * @param id the ID of the part or product
+     * @param name the name to index
+     */
+    void addLater(int id, String name) {
+        if (pendingCount == pendingIDs.length) {
+            int capacity = Math.max(16, pendingCount * 2);
+            pendingIDs = Arrays.copyOf(pendingIDs, capacity);
+            pendingNames = Arrays.copyOf(pendingNames, capacity);
+        }
+        pendingIDs[pendingCount] = id;
+        pendingNames[pendingCount] = name;
+        pendingCount++;
+    }
+
+    /**
+     * Indexes every name queued by addLater(). Searches run under a shared read lock, so the first one to find queued
+     * names does the work while holding this index's monitor, and the others wait for it.
+     */
+    void buildPending() {
+        if (pendingCount == 0)
+            return;
+        synchronized (this) {
+            if (pendingCount == 0)
+                return;
+            lowerNames.ensureCapacity(lowerNames.size() + pendingCount);
+            for (int i = 0; i < pendingCount; i++)
+                index(pendingIDs[i], pendingNames[i]);
+            pendingIDs = NONE;
+            pendingNames = new String[0];
+            pendingCount = 0;
+        }
+    }
+
+    /**
+     * Removes the name indexed for an ID.
+     *
+     * @param id the ID of the part or product
+     */
+    void remove(int id) {
+        buildPending();
+        unindex(id);
+    }
+
+    private void unindex(int id) {
+        String lowerName = lowerNames.remove(id);
+        if (lowerName == null)
+            return;
+        for (int i = 0; i + GRAM <= lowerName.length(); i++) {
+            int key = gram(lowerName, i);
+            SortedIntSet ids = postings.get(key);
+            if (ids != null && ids.remove(id) && ids.isEmpty())
+                postings.remove(key);
+        }
+    }
+
+    /**
+     * Removes every name from the index.
+     */
+    void clear() {
+        pendingIDs = NONE;
+        pendingNames = new String[0];
+        pendingCount = 0;
+        lowerNames.clear();
+        postings.clear();
+        lastCandidates = 0;
+    }
+
+    /**
+     * Returns the IDs whose names contain the query, ignoring case.
+     *
+     * @param query the user-entered String to search
+     * @return the matching IDs in ascending order
+     */
+    int[] search(String query) {
+        buildPending();
+        String lowerQuery = lower(query);
+        if (lowerQuery.length() < GRAM)
+            return scan(lowerQuery);
+
+        SortedIntSet smallest = null;
+        for (int i = 0; i + GRAM <= lowerQuery.length(); i++) {
+            SortedIntSet ids = postings.get(gram(lowerQuery, i));
+            if (ids == null) {
+                lastCandidates = 0;
+                return NONE;
+            }
+            if (smallest == null || ids.size() < smallest.size())
+                smallest = ids;
+        }
+
+        int candidates = smallest.size();
+        int[] matches = new int[Math.min(candidates, 16)];
+        int count = 0;
+        for (int i = 0; i < candidates; i++) {
+            int id = smallest.get(i);
+            if (lowerNames.get(id).contains(lowerQuery)) {
+                if (count == matches.length)
+                    matches = Arrays.copyOf(matches, Math.min(candidates, count * 2));
+                matches[count++] = id;
+            }
+        }
+        lastCandidates = candidates;
+        return count == matches.length ? matches : Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * Narrows the result of an earlier search to the IDs whose names contain a longer query, keeping their order. A
+     * query that contains the earlier one can only match names the earlier one matched, so only those are checked,
+     * unless one of the query's trigrams has fewer IDs, in which case it is searched as usual and the result is in
+     * ascending order.
+     *
+     * @param ids the IDs matched by the earlier query
+     * @param query the user-entered String to search, which contains the earlier query
+     * @return the IDs still in the index whose names contain the query
+     */
+    int[] refine(int[] ids, String query) {
+        buildPending();
+        String lowerQuery = lower(query);
+        for (int i = 0; i + GRAM <= lowerQuery.length(); i++) {
+            SortedIntSet posting = postings.get(gram(lowerQuery, i));
+            if (posting == null || posting.size() < ids.length)
+                return search(query);
+        }
+
+        int[] matches = new int[Math.min(ids.length, 16)];
+        int count = 0;
+        for (int id : ids) {
+            String lowerName = lowerNames.get(id);
+            if (lowerName != null && lowerName.contains(lowerQuery)) {
+                if (count == matches.length)
+                    matches = Arrays.copyOf(matches, Math.min(ids.length, count * 2));
+                matches[count++] = id;
+            }
+        }
+        lastCandidates = ids.length;
+        return count == matches.length ? matches : Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * Checks every stored name. Used for queries too short to have a trigram.
+     */
+    private int[] scan(String lowerQuery) {
+        int candidates = lowerNames.size();
+        int[][] matches = { new int[16] };
+        int[] count = { 0 };
+        lowerNames.forEach((lowerName, id) -> {
+            if (lowerName.contains(lowerQuery)) {
+                if (count[0] == matches[0].length)
+                    matches[0] = Arrays.copyOf(matches[0], count[0] * 2);
+                matches[0][count[0]++] = id;
+            }
+        });
+        int[] result = Arrays.copyOf(matches[0], count[0]);
+        Arrays.sort(result);
+        lastCandidates = candidates;
+        return result;
+    }
+
+    /**
+     * Returns the number of IDs the last search had to check against the query. Compared with size(), this shows how
+     * much of the index the trigrams pruned away.
+     *
+     * @return the candidate count of the last search
+     */
+    int lastCandidateCount() {
+        return lastCandidates;
+    }
+}
@@ -26,4 +26,13 @@ public class Outsourced extends Part {
     public String getCompanyName() {
         return companyName;
     }
+
+    @Override
+    void swapValues(Part other) {
+        super.swapValues(other);
+        Outsourced part = (Outsourced) other;
+        String companyName = this.companyName;
+        this.companyName = part.companyName;
+        part.companyName = companyName;
+    }
 }
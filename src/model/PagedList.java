@@ -0,0 +1,240 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import javafx.collections.ObservableListBase;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * The read-only ObservableList handed to the tables. It holds no items: a table asks for the rows it is showing and
+ * the list fetches them from its Store a page at a time, under one read lock per page, keeping the last few pages.
+ * Scrolling through a million parts therefore keeps no more in memory than scrolling through a hundred.
+ *
+ * A list is either in Store order, when it needs nothing per row, or in the order of an array of IDs, as for a name
+ * search or after the table sorts it. The Store passes every change to its lists on the view executor (the JavaFX
+ * thread in the running application), each refresh as a single change notification, so a table lays itself out once
+ * per refresh. Until a change reaches a list, the Store serves the list's rows as they were before it, so the rows
+ * always agree with the size and the notifications the list has given. A list in the order of IDs finds a row by its
+ * ID through a map of positions, built the first time a change needs it. A search result leaves out items added after the search; the Store's full list takes them in at the end,
+ * also when it is sorted, as the tables always have.
+ *
+ * @param <E> the type of item in the list
+ */
+class PagedList<E> extends ObservableListBase<E> {
+    private static final int PAGE = 64;
+    private static final int PAGES = 4;
+
+    private final Store<E> store;
+    private final boolean takesAdds;
+    private int[] rows;
+    private int size;
+    private IntIntMap positions;
+
+    private final Object[][] pages = new Object[PAGES][];
+    private final int[] pageStarts = new int[PAGES];
+    private int nextPage;
+
+    /**
+     * @param store the Store the rows come from
+     * @param rows the IDs of the rows in order, or null for Store order; kept, not copied
+     * @param size the number of rows
+     * @param takesAdds whether items added to the Store are added to the list
+     */
+    PagedList(Store<E> store, int[] rows, int size, boolean takesAdds) {
+        this.store = store;
+        this.rows = rows;
+        this.size = size;
+        this.takesAdds = takesAdds;
+        Arrays.fill(pageStarts, -1);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        int start = index - index % PAGE;
+        for (int p = 0; p < PAGES; p++) {
+            if (pageStarts[p] == start)
+                return (E) pages[p][index - start];
+        }
+        int count = Math.min(PAGE, size - start);
+        Object[] page = rows == null ? store.rowsAt(start, count) : store.rowsByID(rows, start, count);
+        pages[nextPage] = page;
+        pageStarts[nextPage] = start;
+        nextPage = (nextPage + 1) % PAGES;
+        return (E) page[index - start];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the Store the rows come from
+     */
+    Store<E> store() {
+        return store;
+    }
+
+    /**
+     * @return the IDs of the rows in order, or null when the list is in Store order
+     */
+    int[] rows() {
+        return rows == null ? null : Arrays.copyOf(rows, size);
+    }
+
+    /**
+     * Runs a group of changes so that listeners receive them as one change notification.
+     *
+     * @param changes the changes to apply
+     */
+    void applyBatch(Runnable changes) {
+        beginChange();
+        try {
+            changes.run();
+        } finally {
+            endChange();
+        }
+    }
+
+    /**
+     * @param id the ID of the item added at the end of the Store
+     */
+    void added(int id) {
+        if (!takesAdds)
+            return;
+        dropPages();
+        int from = size;
+        if (rows != null)
+            append(id);
+        else
+            size++;
+        nextAdd(from, size);
+    }
+
+    /**
+     * @param batch the items added at the end of the Store
+     * @param idOf returns the ID of an item
+     */
+    void addedAll(List<E> batch, ToIntFunction<E> idOf) {
+        if (!takesAdds || batch.isEmpty())
+            return;
+        dropPages();
+        int from = size;
+        if (rows != null) {
+            for (E item : batch)
+                append(idOf.applyAsInt(item));
+        } else {
+            size += batch.size();
+        }
+        nextAdd(from, size);
+    }
+
+    /**
+     * @param slot the position of the item in the Store
+     * @param oldItem the item that was replaced
+     * @param oldID its ID
+     * @param newID the ID of the item that replaced it
+     */
+    void replaced(int slot, E oldItem, int oldID, int newID) {
+        int at = rows == null ? slot : find(oldID);
+        if (at < 0 || at >= size)
+            return;
+        dropPages();
+        if (rows != null && newID != oldID) {
+            rows[at] = newID;
+            positions.remove(oldID);
+            positions.put(newID, at);
+        }
+        nextSet(at, oldItem);
+    }
+
+    /**
+     * @param slot the position the item had in the Store
+     * @param oldItem the item that was removed
+     * @param oldID its ID
+     */
+    void removed(int slot, E oldItem, int oldID) {
+        int at = rows == null ? slot : find(oldID);
+        if (at < 0 || at >= size)
+            return;
+        dropPages();
+        if (rows != null) {
+            System.arraycopy(rows, at + 1, rows, at, size - at - 1);
+            positions.remove(oldID);
+            for (int i = at; i < size - 1; i++)
+                positions.put(rows[i], i);
+        }
+        size--;
+        nextRemove(at, oldItem);
+    }
+
+    /**
+     * Reports that every item may have been replaced, keeping the same IDs in the same places. The updates are
+     * consecutive, so listeners receive them as one updated range.
+     */
+    void replacedAll() {
+        dropPages();
+        for (int i = 0; i < size; i++)
+            nextUpdate(i);
+    }
+
+    /**
+     * Puts the rows in a new order as one permutation change. The new rows must be the same items as the old.
+     *
+     * @param order the IDs of the rows in their new order, or null for Store order
+     * @param oldIDs the IDs of the rows in their current order
+     * @param newIDs the IDs of the rows in their new order
+     */
+    void reorder(int[] order, int[] oldIDs, int[] newIDs) {
+        IntIntMap newIndex = new IntIntMap(-1);
+        newIndex.ensureCapacity(newIDs.length);
+        for (int i = 0; i < newIDs.length; i++)
+            newIndex.put(newIDs[i], i);
+        int[] permutation = new int[oldIDs.length];
+        for (int i = 0; i < oldIDs.length; i++)
+            permutation[i] = newIndex.get(oldIDs[i]);
+
+        dropPages();
+        rows = order;
+        size = newIDs.length;
+        positions = null;
+        beginChange();
+        try {
+            nextPermutation(0, size, permutation);
+        } finally {
+            endChange();
+        }
+    }
+
+    private void append(int id) {
+        if (size == rows.length)
+            rows = Arrays.copyOf(rows, Math.max(16, size + (size >> 1)));
+        if (positions != null)
+            positions.put(id, size);
+        rows[size++] = id;
+    }
+
+    private int find(int id) {
+        if (positions == null) {
+            positions = new IntIntMap(-1);
+            positions.ensureCapacity(size);
+            for (int i = 0; i < size; i++)
+                positions.put(rows[i], i);
+        }
+        return positions.get(id);
+    }
+
+    private void dropPages() {
+        Arrays.fill(pageStarts, -1);
+        Arrays.fill(pages, null);
+    }
+}
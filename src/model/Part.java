@@ -4,18 +4,31 @@
 
 package model;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 public abstract class Part {
+    private static final VarHandle STOCK;
+
+    static {
+        try {
+            STOCK = MethodHandles.lookup().findVarHandle(Part.class, "stockStamp", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private int id;
     private String name;
     private double price;
-    private int stock;
+    private volatile long stockStamp;
     private int min;
     private int max;    
     public Part(int id, String name, double price, int stock, int min, int max) {
         this.id = id;
         this.name = name;
         this.price = price;
-        this.stock = stock;
+        this.stockStamp = StockStamp.of(stock);
         this.min = min;
         this.max = max;
     }
@@ -66,14 +79,44 @@ public abstract class Part {
      * @return the stock
      */
     public int getStock() {
-        return stock;
+        return StockStamp.stock(stockStamp);
     }
 
     /**
      * @param stock the stock to set
      */
     public void setStock(int stock) {
-        this.stock = stock;
+        StockStamp.set(STOCK, this, stock);
+    }
+
+    /**
+     * Adds to the stock atomically, so adjustments made at the same time from different threads are all counted. The
+     * stock is kept in a StockStamp with a version, so a build can tell whether it changed.
+     *
+     * @param delta the amount to add, negative to take stock away
+     * @return the stock before the adjustment
+     */
+    int addStock(int delta) {
+        return StockStamp.add(STOCK, this, delta);
+    }
+
+    /**
+     * @return the stock and its version, for a build; see StockStamp
+     */
+    long stockStamp() {
+        return StockStamp.read(STOCK, this);
+    }
+
+    boolean lockStock(long seen) {
+        return StockStamp.lock(STOCK, this, seen);
+    }
+
+    void unlockStock(long seen) {
+        StockStamp.unlock(STOCK, this, seen);
+    }
+
+    void commitStock(long seen, int stock) {
+        StockStamp.commit(STOCK, this, seen, stock);
     }
 
     /**
@@ -103,5 +146,28 @@ public abstract class Part {
     public void setMax(int max) {
         this.max = max;
     }
+
+    /**
+     * Exchanges the values of this part with those of another part of the same class. The IDs are left alone.
+     *
+     * @param other the part to exchange values with
+     */
+    void swapValues(Part other) {
+        String name = this.name;
+        this.name = other.name;
+        other.name = name;
+        double price = this.price;
+        this.price = other.price;
+        other.price = price;
+        long stockStamp = this.stockStamp;
+        this.stockStamp = other.stockStamp;
+        other.stockStamp = stockStamp;
+        int min = this.min;
+        this.min = other.min;
+        other.min = min;
+        int max = this.max;
+        this.max = other.max;
+        other.max = max;
+    }
     
 }
\ No newline at end of file
@@ -0,0 +1,219 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Secondary indexes over the parts for PartQuery: price and stock are kept in sorted maps of buckets, one bucket of IDs
+ * per value, so a range is found without a scan, and company names and machine IDs in hash maps of buckets. Each part's
+ * indexed values are kept too, as the index is fed by the inventory's change events and must not read the parts.
+ *
+ * A query starts from the condition that matches the fewest parts. Equality conditions know their count from the size
+ * of their bucket; ranges are counted bucket by bucket, stopping once they pass the best count so far. Only the IDs the
+ * chosen condition matches are then checked against the other conditions.
+ */
+class PartIndex {
+    private static final int[] NONE = new int[0];
+
+    /**
+     * The values of one part as they were indexed.
+     */
+    private static final class Entry {
+        final double price;
+        final int stock;
+        final String company;
+        final boolean inHouse;
+        final int machineID;
+
+        Entry(Part part) {
+            price = part.getPrice() + 0.0;
+            stock = part.getStock();
+            if (part instanceof Outsourced) {
+                company = key(((Outsourced) part).getCompanyName());
+                inHouse = false;
+                machineID = 0;
+            } else {
+                company = null;
+                inHouse = part instanceof InHouse;
+                machineID = inHouse ? ((InHouse) part).getMachineID() : 0;
+            }
+        }
+    }
+
+    private final IntMap<Entry> entries = new IntMap<>();
+    private final TreeMap<Double, SortedIntSet> byPrice = new TreeMap<>();
+    private final TreeMap<Integer, SortedIntSet> byStock = new TreeMap<>();
+    private final Map<String, SortedIntSet> byCompany = new HashMap<>();
+    private final IntMap<SortedIntSet> byMachine = new IntMap<>();
+    private volatile int lastCandidates;
+
+    private static String key(String companyName) {
+        return companyName == null ? "" : companyName.toLowerCase();
+    }
+
+    /**
+     * Records a part's values, which may be new or changed.
+     *
+     * @param part the part that was added or changed
+     */
+    synchronized void update(Part part) {
+        remove(part.getId());
+        Entry entry = new Entry(part);
+        entries.put(part.getId(), entry);
+        link(byPrice, entry.price, part.getId());
+        link(byStock, entry.stock, part.getId());
+        if (entry.company != null)
+            link(byCompany, entry.company, part.getId());
+        if (entry.inHouse) {
+            SortedIntSet bucket = byMachine.get(entry.machineID);
+            if (bucket == null) {
+                bucket = new SortedIntSet();
+                byMachine.put(entry.machineID, bucket);
+            }
+            bucket.add(part.getId());
+        }
+    }
+
+    /**
+     * @param id the ID of the part that left the inventory
+     */
+    synchronized void remove(int id) {
+        Entry entry = entries.remove(id);
+        if (entry == null)
+            return;
+        unlink(byPrice, entry.price, id);
+        unlink(byStock, entry.stock, id);
+        if (entry.company != null)
+            unlink(byCompany, entry.company, id);
+        if (entry.inHouse) {
+            SortedIntSet bucket = byMachine.get(entry.machineID);
+            if (bucket != null && bucket.remove(id) && bucket.isEmpty())
+                byMachine.remove(entry.machineID);
+        }
+    }
+
+    /**
+     * @param query the conditions to match
+     * @return the IDs of the parts that meet every condition, in ascending order
+     */
+    synchronized int[] find(PartQuery query) {
+        if (!(query.minPrice <= query.maxPrice) || query.minStock > query.maxStock
+                || (query.companyName != null && query.byMachineID)) {
+            lastCandidates = 0;
+            return NONE;
+        }
+
+        SortedIntSet bucket = null;
+        int best = Integer.MAX_VALUE;
+        if (query.companyName != null) {
+            bucket = byCompany.get(key(query.companyName));
+            best = bucket == null ? 0 : bucket.size();
+        }
+        if (query.byMachineID) {
+            bucket = byMachine.get(query.machineID);
+            best = bucket == null ? 0 : bucket.size();
+        }
+        if (best == 0) {
+            lastCandidates = 0;
+            return NONE;
+        }
+
+        NavigableMap<?, SortedIntSet> range = null;
+        if (query.byPrice()) {
+            NavigableMap<Double, SortedIntSet> prices = byPrice.subMap(query.minPrice, true, query.maxPrice, true);
+            int count = count(prices, best);
+            if (count < best) {
+                range = prices;
+                best = count;
+            }
+        }
+        if (query.byStock()) {
+            NavigableMap<Integer, SortedIntSet> stocks = byStock.subMap(query.minStock, true, query.maxStock, true);
+            int count = count(stocks, best);
+            if (count < best) {
+                range = stocks;
+                best = count;
+            }
+        }
+
+        int[] candidates;
+        if (range != null)
+            candidates = collect(range, best);
+        else if (bucket != null)
+            candidates = bucket.toArray();
+        else
+            candidates = collect(byPrice, entries.size());
+
+        lastCandidates = candidates.length;
+        int count = 0;
+        for (int id : candidates) {
+            if (matches(entries.get(id), query))
+                candidates[count++] = id;
+        }
+        return count == candidates.length ? candidates : Arrays.copyOf(candidates, count);
+    }
+
+    /**
+     * @return the number of parts the last query had to check against all of its conditions
+     */
+    int lastCandidateCount() {
+        return lastCandidates;
+    }
+
+    private static boolean matches(Entry entry, PartQuery query) {
+        if (entry.price < query.minPrice || entry.price > query.maxPrice)
+            return false;
+        if (entry.stock < query.minStock || entry.stock > query.maxStock)
+            return false;
+        if (query.companyName != null && !key(query.companyName).equals(entry.company))
+            return false;
+        return !query.byMachineID || (entry.inHouse && entry.machineID == query.machineID);
+    }
+
+    /**
+     * Counts the IDs in a range, giving up once the count reaches the limit.
+     */
+    private static int count(Map<?, SortedIntSet> range, int limit) {
+        int count = 0;
+        for (SortedIntSet bucket : range.values()) {
+            count += bucket.size();
+            if (count >= limit)
+                return limit;
+        }
+        return count;
+    }
+
+    private static int[] collect(Map<?, SortedIntSet> range, int count) {
+        int[] ids = new int[count];
+        int n = 0;
+        for (SortedIntSet bucket : range.values()) {
+            for (int i = 0; i < bucket.size(); i++)
+                ids[n++] = bucket.get(i);
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private static <K> void link(Map<K, SortedIntSet> buckets, K key, int id) {
+        SortedIntSet bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new SortedIntSet();
+            buckets.put(key, bucket);
+        }
+        bucket.add(id);
+    }
+
+    private static <K> void unlink(Map<K, SortedIntSet> buckets, K key, int id) {
+        SortedIntSet bucket = buckets.get(key);
+        if (bucket != null && bucket.remove(id) && bucket.isEmpty())
+            buckets.remove(key);
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+/**
+ * The conditions for Inventory.lookupParts(), e.g. new PartQuery().priceBetween(1, 5).stockBelow(10). A part matches
+ * when it meets every condition set; a query with no conditions matches every part. Setting a condition again replaces
+ * it.
+ */
+public final class PartQuery {
+    double minPrice = Double.NEGATIVE_INFINITY;
+    double maxPrice = Double.POSITIVE_INFINITY;
+    int minStock = Integer.MIN_VALUE;
+    int maxStock = Integer.MAX_VALUE;
+    String companyName;
+    boolean byMachineID;
+    int machineID;
+
+    /**
+     * @param min the lowest price to match
+     * @param max the highest price to match
+     * @return this query
+     */
+    public PartQuery priceBetween(double min, double max) {
+        minPrice = min;
+        maxPrice = max;
+        return this;
+    }
+
+    /**
+     * @param min the lowest stock to match
+     * @param max the highest stock to match
+     * @return this query
+     */
+    public PartQuery stockBetween(int min, int max) {
+        minStock = min;
+        maxStock = max;
+        return this;
+    }
+
+    /**
+     * @param limit the stock the parts must be below
+     * @return this query
+     */
+    public PartQuery stockBelow(int limit) {
+        if (limit == Integer.MIN_VALUE)
+            return stockBetween(0, -1);
+        return stockBetween(Integer.MIN_VALUE, limit - 1);
+    }
+
+    /**
+     * Matches only Outsourced parts from a company, ignoring case.
+     *
+     * @param name the company name
+     * @return this query
+     */
+    public PartQuery companyName(String name) {
+        companyName = name;
+        return this;
+    }
+
+    /**
+     * Matches only In-House parts made on a machine.
+     *
+     * @param id the machine ID
+     * @return this query
+     */
+    public PartQuery machineID(int id) {
+        byMachineID = true;
+        machineID = id;
+        return this;
+    }
+
+    boolean byPrice() {
+        return minPrice > Double.NEGATIVE_INFINITY || maxPrice < Double.POSITIVE_INFINITY;
+    }
+
+    boolean byStock() {
+        return minStock > Integer.MIN_VALUE || maxStock < Integer.MAX_VALUE;
+    }
+}
@@ -5,16 +5,36 @@
 
 package model;
 
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
 public class Product {
+    private static final long[] NO_PARTS = new long[0];
+    private static final VarHandle STOCK;
+
+    static {
+        try {
+            STOCK = MethodHandles.lookup().findVarHandle(Product.class, "stockStamp", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
-    private ObservableList<Part> associatedParts = FXCollections.observableArrayList();
+    /**
+     * The bill of materials: one line per distinct associated part, sorted by part ID, each packing the part ID in the
+     * high 32 bits and the quantity in the low 32 bits. The array is never changed once published; a change builds a
+     * new one, so a reader on another thread always sees a whole bill of materials.
+     */
+    private volatile long[] partLines = NO_PARTS;
+    private WeakReference<AssociatedPartsList> associatedParts;
     int id;
     String name;
     double price;
-    int stock;
+    private volatile long stockStamp;
     int min;
     int max;
 
@@ -22,7 +42,7 @@ public class Product {
         this.id = id;
         this.name = name;
         this.price = price;
-        this.stock = stock;
+        this.stockStamp = StockStamp.of(stock);
         this.min = min;
         this.max = max;
     }
@@ -45,7 +65,7 @@ public class Product {
      * @param stock the stock
      */
     public void setStock(int stock) {
-        this.stock = stock;
+        StockStamp.set(STOCK, this, stock);
     }
 
     /**
@@ -94,7 +114,36 @@ public class Product {
      * @return the stock
      */
     public int getStock() {
-        return stock;
+        return StockStamp.stock(stockStamp);
+    }
+
+    /**
+     * Adds to the stock atomically, as Part.addStock() does.
+     *
+     * @param delta the amount to add, negative to take stock away
+     * @return the stock before the adjustment
+     */
+    int addStock(int delta) {
+        return StockStamp.add(STOCK, this, delta);
+    }
+
+    /**
+     * @return the stock and its version, for a build; see StockStamp
+     */
+    long stockStamp() {
+        return StockStamp.read(STOCK, this);
+    }
+
+    boolean lockStock(long seen) {
+        return StockStamp.lock(STOCK, this, seen);
+    }
+
+    void unlockStock(long seen) {
+        StockStamp.unlock(STOCK, this, seen);
+    }
+
+    void commitStock(long seen, int stock) {
+        StockStamp.commit(STOCK, this, seen, stock);
     }
 
     /**
@@ -112,30 +161,233 @@ public class Product {
     }
 
     /**
-     * Adds an associated part to a list of parts associated with a Product.
+     * Adds an associated part to a list of parts associated with a Product. Adding a part that is already associated
+     * raises its quantity by one. The part's line is found with a binary search on part ID.
      *
      * @param part the associated part to be added
      */
     public void addAssociatedPart(Part part) {
-        associatedParts.add(part);
+        int partID = part.getId();
+        Inventory.associatedPartsChanging(this, () -> {
+            synchronized (this) {
+                long[] lines = partLines;
+                int at = find(lines, partID);
+                long[] next;
+                if (at >= 0) {
+                    next = lines.clone();
+                    next[at]++;
+                } else {
+                    at = -at - 1;
+                    next = new long[lines.length + 1];
+                    System.arraycopy(lines, 0, next, 0, at);
+                    System.arraycopy(lines, at, next, at + 1, lines.length - at);
+                    next[at] = line(partID, 1);
+                }
+                partLines = next;
+                return true;
+            }
+        });
+        associatedPartsChanged();
     }
 
     /**
-     * Deletes an associated part from a list of parts associated with a Product.
+     * Deletes an associated part from a list of parts associated with a Product. One unit is removed; the part stays
+     * associated while its quantity is above zero. The part is matched by part ID.
      *
      * @param selectedAssociatedPart the associated part to be deleted
      * @return boolean reflecting whether deletion was successful
      */
     public boolean deleteAssociatedPart(Part selectedAssociatedPart) {
-        return associatedParts.remove(selectedAssociatedPart);
+        boolean deleted = Inventory.associatedPartsChanging(this, () -> {
+            synchronized (this) {
+                long[] lines = partLines;
+                int at = find(lines, selectedAssociatedPart.getId());
+                if (at < 0)
+                    return false;
+                if (quantity(lines[at]) > 1) {
+                    long[] next = lines.clone();
+                    next[at]--;
+                    partLines = next;
+                } else {
+                    partLines = without(lines, at);
+                }
+                return true;
+            }
+        });
+        if (deleted)
+            associatedPartsChanged();
+        return deleted;
+    }
+
+    /**
+     * Removes a part from the bill of materials whatever its quantity.
+     *
+     * @param partID the ID of the part
+     * @return whether the part was associated
+     */
+    boolean removeAssociatedPart(int partID) {
+        boolean removed = Inventory.associatedPartsChanging(this, () -> {
+            synchronized (this) {
+                long[] lines = partLines;
+                int at = find(lines, partID);
+                if (at < 0)
+                    return false;
+                partLines = without(lines, at);
+                return true;
+            }
+        });
+        if (removed)
+            associatedPartsChanged();
+        return removed;
+    }
+
+    /**
+     * Replaces the bill of materials. The IDs may come in any order; a part ID given more than once has its
+     * quantities added together.
+     *
+     * @param partIDs the IDs of the associated parts
+     * @param quantities the quantity of each part, in the same order as partIDs
+     * @throws IllegalArgumentException if the arrays differ in length, a part ID is below 0 or a quantity is below 1
+     */
+    public void setAssociatedParts(int[] partIDs, int[] quantities) {
+        if (partIDs.length != quantities.length)
+            throw new IllegalArgumentException("partIDs and quantities differ in length");
+        long[] lines = new long[partIDs.length];
+        for (int i = 0; i < lines.length; i++) {
+            if (partIDs[i] < 0)
+                throw new IllegalArgumentException("Part ID " + partIDs[i] + " must not be below 0");
+            if (quantities[i] < 1)
+                throw new IllegalArgumentException("Quantity of part " + partIDs[i] + " must be at least 1");
+            lines[i] = line(partIDs[i], quantities[i]);
+        }
+        Arrays.sort(lines);
+        int distinct = 0;
+        for (int i = 0; i < lines.length; i++) {
+            if (distinct > 0 && partID(lines[distinct - 1]) == partID(lines[i]))
+                lines[distinct - 1] += quantity(lines[i]);
+            else
+                lines[distinct++] = lines[i];
+        }
+        long[] next = distinct == lines.length ? lines : Arrays.copyOf(lines, distinct);
+        Inventory.associatedPartsChanging(this, () -> {
+            partLines = next;
+            return true;
+        });
+        associatedPartsChanged();
+    }
+
+    /**
+     * Gives this product the same bill of materials as another.
+     *
+     * @param source the product to copy the associated parts from
+     */
+    public void setAssociatedParts(Product source) {
+        long[] next = source.partLines;
+        Inventory.associatedPartsChanging(this, () -> {
+            partLines = next;
+            return true;
+        });
+        associatedPartsChanged();
+    }
+
+    /**
+     * Copies the product's values and bill of materials without telling the inventory, for a snapshot.
+     *
+     * @return the copy
+     */
+    Product copy() {
+        Product copy = new Product(id, name, price, getStock(), min, max);
+        copy.partLines = partLines;
+        return copy;
+    }
+
+    /**
+     * Returns the bill of materials. Each line packs a part ID and its quantity; read them with partID() and
+     * quantity(). The array is shared and must not be changed.
+     *
+     * @return the lines, sorted by part ID
+     */
+    public long[] getAssociatedPartLines() {
+        return partLines;
+    }
+
+    /**
+     * @return the number of distinct parts associated with the product
+     */
+    public int getAssociatedPartCount() {
+        return partLines.length;
+    }
+
+    /**
+     * @param partID the ID of the part
+     * @return how many of the part the product uses, 0 if it is not associated
+     */
+    public int getAssociatedPartQuantity(int partID) {
+        long[] lines = partLines;
+        int at = find(lines, partID);
+        return at < 0 ? 0 : quantity(lines[at]);
+    }
+
+    /**
+     * @param line a line of the bill of materials
+     * @return the part ID of the line
+     */
+    public static int partID(long line) {
+        return (int) (line >> 32);
+    }
+
+    /**
+     * @param line a line of the bill of materials
+     * @return the quantity of the line
+     */
+    public static int quantity(long line) {
+        return (int) line;
+    }
+
+    private static long line(int partID, int quantity) {
+        return (long) partID << 32 | quantity;
+    }
+
+    /**
+     * @return the index of the part's line, or -(insertion point) - 1 if it has none
+     */
+    private static int find(long[] lines, int partID) {
+        int at = -Arrays.binarySearch(lines, (long) partID << 32) - 1;
+        if (at < lines.length && partID(lines[at]) == partID)
+            return at;
+        return -at - 1;
+    }
+
+    private static long[] without(long[] lines, int at) {
+        if (lines.length == 1)
+            return NO_PARTS;
+        long[] next = new long[lines.length - 1];
+        System.arraycopy(lines, 0, next, 0, at);
+        System.arraycopy(lines, at + 1, next, at, next.length - at);
+        return next;
+    }
+
+    private void associatedPartsChanged() {
+        AssociatedPartsList list = associatedParts == null ? null : associatedParts.get();
+        if (list != null)
+            list.refresh();
+        Inventory.associatedPartsChanged(this);
     }
 
     /**
-     * Returns the list of all parts associated with a product.
+     * Returns the list of all parts associated with a product, with a part that has a quantity above one repeated
+     * that many times. The list is built from the bill of materials when it is first asked for, is kept up to date
+     * while something holds on to it, such as the Modify Product form, and is dropped once nothing does. It can't be
+     * changed directly; use addAssociatedPart() and deleteAssociatedPart().
      *
      * @return the list of all associated parts
      */
-    public ObservableList<Part> getAssociatedParts(){
-        return associatedParts;
+    public synchronized ObservableList<Part> getAssociatedParts() {
+        AssociatedPartsList list = associatedParts == null ? null : associatedParts.get();
+        if (list == null) {
+            list = new AssociatedPartsList(this);
+            associatedParts = new WeakReference<>(list);
+        }
+        return list;
     }
 }
@@ -0,0 +1,106 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of int IDs kept in ascending order in a single int array. IDs are handed out in increasing order, so adding a
+ * new item is almost always an append; membership tests and removals use a binary search.
+ */
+class SortedIntSet {
+    private static final int[] EMPTY = new int[0];
+
+    private int[] ids = EMPTY;
+    private int size;
+
+    /**
+     * @return the number of IDs in the set
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return whether the set has no IDs
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param id the ID to look for
+     * @return whether the ID is in the set
+     */
+    boolean contains(int id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    /**
+     * Adds an ID to the set.
+     *
+     * @param id the ID to add
+     * @return whether the ID was added; false if it was already in the set
+     */
+    boolean add(int id) {
+        int at;
+        if (size == 0 || ids[size - 1] < id) {
+            at = size;
+        } else {
+            at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0)
+                return false;
+            at = -at - 1;
+        }
+        if (size == ids.length)
+            ids = Arrays.copyOf(ids, Math.max(4, size + (size >> 1)));
+        System.arraycopy(ids, at, ids, at + 1, size - at);
+        ids[at] = id;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes an ID from the set.
+     *
+     * @param id the ID to remove
+     * @return whether the ID was in the set
+     */
+    boolean remove(int id) {
+        int at = Arrays.binarySearch(ids, 0, size, id);
+        if (at < 0)
+            return false;
+        System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+        size--;
+        return true;
+    }
+
+    /**
+     * @param index the position in ascending order
+     * @return the ID at that position
+     */
+    int get(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Passes each ID to the action in ascending order.
+     *
+     * @param action the action to run for each ID
+     */
+    void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++)
+            action.accept(ids[i]);
+    }
+
+    /**
+     * @return a copy of the IDs in ascending order
+     */
+    int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * The stock of a part or product packed into one long with a version number, so a build can read several stocks and
+ * later tell whether any of them changed. The low 32 bits hold the stock, the next 31 a version that goes up with
+ * every change, and the top bit is set while a build holds the stock. A read of the stock is one volatile read; a
+ * change waits for a build holding the stock, which is only ever for as long as it takes to write its new stocks.
+ *
+ * Part and Product each keep a volatile long and a VarHandle for it, and pass the handle in.
+ */
+final class StockStamp {
+    static final long LOCKED = 1L << 63;
+    private static final long VERSIONS = 0x7FFFFFFF00000000L;
+    private static final long VERSION_ONE = 1L << 32;
+
+    private StockStamp() { }
+
+    /**
+     * @param stock the initial stock
+     * @return a stamp holding the stock at version 0
+     */
+    static long of(int stock) {
+        return stock & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @param stamp a stamp
+     * @return the stock it holds
+     */
+    static int stock(long stamp) {
+        return (int) stamp;
+    }
+
+    /**
+     * @param stamp an unlocked stamp
+     * @param stock the new stock
+     * @return the next version of the stamp, holding the new stock
+     */
+    private static long next(long stamp, int stock) {
+        return ((stamp + VERSION_ONE) & VERSIONS) | (stock & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param handle the item's stamp field
+     * @param item the part or product
+     * @return the item's stamp, waiting for a build that holds it to finish
+     */
+    static long read(VarHandle handle, Object item) {
+        long stamp = (long) handle.getVolatile(item);
+        while ((stamp & LOCKED) != 0) {
+            Thread.onSpinWait();
+            stamp = (long) handle.getVolatile(item);
+        }
+        return stamp;
+    }
+
+    /**
+     * Adds to the stock atomically.
+     *
+     * @param handle the item's stamp field
+     * @param item the part or product
+     * @param delta the amount to add
+     * @return the stock before the adjustment
+     */
+    static int add(VarHandle handle, Object item, int delta) {
+        while (true) {
+            long stamp = read(handle, item);
+            if (handle.compareAndSet(item, stamp, next(stamp, stock(stamp) + delta)))
+                return stock(stamp);
+        }
+    }
+
+    /**
+     * Sets the stock atomically.
+     *
+     * @param handle the item's stamp field
+     * @param item the part or product
+     * @param stock the new stock
+     */
+    static void set(VarHandle handle, Object item, int stock) {
+        while (true) {
+            long stamp = read(handle, item);
+            if (handle.compareAndSet(item, stamp, next(stamp, stock)))
+                return;
+        }
+    }
+
+    /**
+     * Takes the stock for a build, if it has not changed since the build read it.
+     *
+     * @param handle the item's stamp field
+     * @param item the part or product
+     * @param seen the stamp the build read
+     * @return whether the stock was taken; false if it changed or another build holds it
+     */
+    static boolean lock(VarHandle handle, Object item, long seen) {
+        return (seen & LOCKED) == 0 && handle.compareAndSet(item, seen, seen | LOCKED);
+    }
+
+    /**
+     * Gives back a stock taken by lock() without changing it.
+     *
+     * @param handle the item's stamp field
+     * @param item the part or product
+     * @param seen the stamp passed to lock()
+     */
+    static void unlock(VarHandle handle, Object item, long seen) {
+        handle.setVolatile(item, seen);
+    }
+
+    /**
+     * Writes a new stock taken by lock() and gives it back.
+     *
+     * @param handle the item's stamp field
+     * @param item the part or product
+     * @param seen the stamp passed to lock()
+     * @param stock the new stock
+     */
+    static void commit(VarHandle handle, Object item, long seen, int stock) {
+        handle.setVolatile(item, next(seen, stock));
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Orders items by stock headroom, i.e. stock - min, so the items at or below their reorder point, or the ones closest
+ * to running out, are found in time proportional to the number returned rather than by a scan of the inventory. The
+ * IDs are kept in buckets, one per headroom value, in a sorted map; items over their max are kept the same way by how
+ * far over they are.
+ *
+ * The index is fed by the inventory's change events and reports when an item crosses its reorder point, so the
+ * inventory can tell its listeners.
+ */
+class StockWatch {
+    /**
+     * The item's stock fell to or below its min.
+     */
+    static final int BELOW_MIN = 1;
+
+    /**
+     * The item's stock was at or below its min and is now above it.
+     */
+    static final int RESTOCKED = -1;
+
+    /**
+     * The item is on the same side of its min as before.
+     */
+    static final int UNCHANGED = 0;
+
+    private static final int[] NONE = new int[0];
+
+    private final TreeMap<Integer, SortedIntSet> byHeadroom = new TreeMap<>();
+    private final TreeMap<Integer, SortedIntSet> byExcess = new TreeMap<>();
+    private final IntIntMap headroom = new IntIntMap(Integer.MIN_VALUE);
+    private final IntIntMap excess = new IntIntMap(0);
+
+    /**
+     * Records an item's stock levels, which may be new or changed.
+     *
+     * @param id the ID of the item
+     * @param stock the item's stock
+     * @param min the item's min
+     * @param max the item's max
+     * @return BELOW_MIN or RESTOCKED if the item crossed its min, otherwise UNCHANGED; a new item at or below its min
+     * counts as BELOW_MIN
+     */
+    synchronized int update(int id, int stock, int min, int max) {
+        int before = headroom.get(id);
+        int after = stock - min;
+        if (after != before) {
+            if (before != Integer.MIN_VALUE)
+                unlink(byHeadroom, before, id);
+            link(byHeadroom, after, id);
+            headroom.put(id, after);
+        }
+
+        int over = Math.max(0, stock - max);
+        int wasOver = excess.get(id);
+        if (over != wasOver) {
+            if (wasOver > 0)
+                unlink(byExcess, wasOver, id);
+            if (over > 0) {
+                link(byExcess, over, id);
+                excess.put(id, over);
+            } else {
+                excess.remove(id);
+            }
+        }
+
+        boolean wasLow = before != Integer.MIN_VALUE && before <= 0;
+        boolean low = after <= 0;
+        if (low == wasLow)
+            return UNCHANGED;
+        return low ? BELOW_MIN : RESTOCKED;
+    }
+
+    /**
+     * @param id the ID of the item that left the inventory
+     */
+    synchronized void remove(int id) {
+        int before = headroom.remove(id);
+        if (before != Integer.MIN_VALUE)
+            unlink(byHeadroom, before, id);
+        int wasOver = excess.remove(id);
+        if (wasOver > 0)
+            unlink(byExcess, wasOver, id);
+    }
+
+    /**
+     * @return the IDs of the items at or below their min, lowest headroom first
+     */
+    synchronized int[] atOrBelowMin() {
+        return collect(byHeadroom.headMap(0, true), Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param count the most IDs to return
+     * @return the IDs of the items with the least headroom, lowest first
+     */
+    synchronized int[] closestToStockout(int count) {
+        return collect(byHeadroom, count);
+    }
+
+    /**
+     * @return the IDs of the items over their max, furthest over first
+     */
+    synchronized int[] overMax() {
+        return collect(byExcess.descendingMap(), Integer.MAX_VALUE);
+    }
+
+    private static int[] collect(Map<Integer, SortedIntSet> buckets, int count) {
+        if (count <= 0)
+            return NONE;
+        int[] ids = new int[Math.min(count, 16)];
+        int n = 0;
+        for (SortedIntSet bucket : buckets.values()) {
+            for (int i = 0; i < bucket.size() && n < count; i++) {
+                if (n == ids.length)
+                    ids = Arrays.copyOf(ids, (int) Math.min(count, n * 2L));
+                ids[n++] = bucket.get(i);
+            }
+            if (n == count)
+                break;
+        }
+        return n == ids.length ? ids : Arrays.copyOf(ids, n);
+    }
+
+    private static void link(TreeMap<Integer, SortedIntSet> buckets, int key, int id) {
+        SortedIntSet bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new SortedIntSet();
+            buckets.put(key, bucket);
+        }
+        bucket.add(id);
+    }
+
+    private static void unlink(TreeMap<Integer, SortedIntSet> buckets, int key, int id) {
+        SortedIntSet bucket = buckets.get(key);
+        if (bucket != null && bucket.remove(id) && bucket.isEmpty())
+            buckets.remove(key);
+    }
+}
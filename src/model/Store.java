@@ -0,0 +1,802 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import javafx.collections.ObservableList;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Holds the parts or the products of the inventory, together with their ID, position and name indexes. Any thread
+ * can use a Store: readers share a read lock and writers take the write lock, and parts and products each have their
+ * own Store and lock.
+ *
+ * The tables show PagedLists, which hold no items of their own and read the rows they show from the Store. The lists
+ * are told about changes on the view executor (the JavaFX thread in the running application). Changes are queued as
+ * they are made, and one refresh passes everything queued since the last refresh to each list as a single change
+ * notification.
+ *
+ * @param <T> Part or Product
+ */
+class Store<T> {
+    private static final int ADD = 0;
+    private static final int SET = 1;
+    private static final int REMOVE = 2;
+    private static final int ADD_ALL = 3;
+    private static final int SET_ALL = 4;
+
+    /**
+     * Batches at least this large have their names indexed in the background instead of before addAll() returns.
+     */
+    private static final int BACKGROUND_NAMES = 10_000;
+
+    /**
+     * One change waiting to be applied to the view.
+     */
+    private static final class Change<T> {
+        final int kind;
+        final int slot;
+        final T oldItem;
+        final T newItem;
+        final List<T> batch;
+
+        Change(int kind, int slot, T oldItem, T newItem) {
+            this(kind, slot, oldItem, newItem, null);
+        }
+
+        Change(int kind, int slot, T oldItem, T newItem, List<T> batch) {
+            this.kind = kind;
+            this.slot = slot;
+            this.oldItem = oldItem;
+            this.newItem = newItem;
+            this.batch = batch;
+        }
+    }
+
+    /**
+     * Told about each change while the write lock is still held, so changes arrive in the order they were made.
+     * changing() is called just before an item's values are changed in place by modify(), while it still holds its old
+     * values.
+     */
+    interface Observer<T> {
+        void added(T item);
+
+        void changing(T item);
+
+        void replaced(T oldItem, T newItem);
+
+        void removed(T item);
+
+        void changed(T item);
+    }
+
+    private final ToIntFunction<T> idOf;
+    private final Function<T, String> nameOf;
+    private final Observer<T> observer;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ArrayList<T> items = new ArrayList<>();
+    private final IntMap<T> byID = new IntMap<>();
+    private final IntIntMap slots = new IntIntMap(-1);
+    private final NameIndex names = new NameIndex();
+
+    private final PagedList<T> view = new PagedList<>(this, null, 0, true);
+    private final List<WeakReference<PagedList<T>>> filters = new ArrayList<>();
+    private final ConcurrentLinkedQueue<Change<T>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    private volatile Executor viewExecutor = Runnable::run;
+
+    /**
+     * @param idOf returns the ID of an item
+     * @param nameOf returns the name of an item
+     * @param observer told about each change
+     */
+    Store(ToIntFunction<T> idOf, Function<T, String> nameOf, Observer<T> observer) {
+        this.idOf = idOf;
+        this.nameOf = nameOf;
+        this.observer = observer;
+    }
+
+    /**
+     * Sets where view refreshes run. Until this is called, the view is refreshed straight away on the thread that
+     * changed the Store, which lets the model run without the JavaFX toolkit.
+     *
+     * @param executor runs view refreshes, e.g. Platform::runLater
+     */
+    void setViewExecutor(Executor executor) {
+        viewExecutor = executor;
+    }
+
+    /**
+     * @return the list of every item, in Store order until a table sorts it
+     */
+    ObservableList<T> view() {
+        return view;
+    }
+
+    /**
+     * Returns a list of some of the items, e.g. the result of a search, that is kept up to date as those items are
+     * replaced or removed. Items added to the Store later are not added to it.
+     *
+     * @param ids the IDs of the items, in the order to show them; kept, not copied
+     * @return the list of the items
+     */
+    ObservableList<T> filter(int[] ids) {
+        PagedList<T> list = new PagedList<>(this, ids, ids.length, false);
+        synchronized (view) {
+            for (Iterator<WeakReference<PagedList<T>>> i = filters.iterator(); i.hasNext(); ) {
+                if (i.next().get() == null)
+                    i.remove();
+            }
+            filters.add(new WeakReference<>(list));
+        }
+        return list;
+    }
+
+    /**
+     * Puts a list returned by view() or filter() in a new order. The items are sorted once, under the read lock, and
+     * the list keeps only their IDs in the new order.
+     *
+     * @param list the list to sort
+     * @param comparator the order to put the items in, or null to go back to Store order, or ID order for a filter
+     * @return whether the list belongs to this Store and was sorted
+     */
+    boolean sort(ObservableList<T> list, Comparator<? super T> comparator) {
+        if (!(list instanceof PagedList) || ((PagedList<T>) list).store() != this)
+            return false;
+        PagedList<T> paged = (PagedList<T>) list;
+        synchronized (view) {
+            int[] oldIDs;
+            int[] newIDs;
+            int[] order;
+            lock.readLock().lock();
+            try {
+                applyPending();
+                oldIDs = paged.rows();
+                if (oldIDs == null)
+                    oldIDs = ids(items);
+                if (comparator != null) {
+                    List<T> sorted = new ArrayList<>(oldIDs.length);
+                    for (int id : oldIDs)
+                        sorted.add(byID.get(id));
+                    sorted.sort(comparator);
+                    newIDs = ids(sorted);
+                    order = newIDs;
+                } else if (paged == view) {
+                    newIDs = ids(items);
+                    order = null;
+                } else {
+                    newIDs = oldIDs.clone();
+                    Arrays.sort(newIDs);
+                    order = newIDs;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            paged.reorder(order, oldIDs, newIDs);
+        }
+        return true;
+    }
+
+    /**
+     * Returns rows of a list in Store order as the list has been told about them. Changes still queued for the lists
+     * are allowed for, so the rows match the list's size until the next refresh: a row that a queued change replaced
+     * or removed is returned as it was.
+     *
+     * @param from the position in the list of the first row
+     * @param count the number of rows
+     * @return the items at those positions, with null past the end of the list
+     */
+    Object[] rowsAt(int from, int count) {
+        Object[] rows = new Object[count];
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < count; i++)
+                rows[i] = pending.isEmpty() ? itemAt(from + i) : listedAt(from + i);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return rows;
+    }
+
+    /**
+     * Returns rows of a list in the order of its IDs as the list has been told about them, allowing for the changes
+     * still queued as rowsAt() does.
+     *
+     * @param ids the IDs of a list's rows
+     * @param from the first row
+     * @param count the number of rows
+     * @return the items with those IDs, with null for an ID the list has been told is gone
+     */
+    Object[] rowsByID(int[] ids, int from, int count) {
+        Object[] rows = new Object[count];
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < count; i++)
+                rows[i] = pending.isEmpty() ? byID.get(ids[from + i]) : listedByID(ids[from + i]);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return rows;
+    }
+
+    private T itemAt(int index) {
+        return index < items.size() ? items.get(index) : null;
+    }
+
+    /**
+     * Carries a position in the lists forward through the queued changes, oldest first, to a position in the Store.
+     * Additions go on the end and never move a listed row. Called under the read lock.
+     */
+    private T listedAt(int index) {
+        for (Change<T> change : pending) {
+            if (change.kind == SET || change.kind == REMOVE) {
+                if (change.slot == index)
+                    return change.oldItem;
+                if (change.kind == REMOVE && change.slot < index)
+                    index--;
+            }
+        }
+        return itemAt(index);
+    }
+
+    /**
+     * Finds the item a list shows for an ID: the oldest queued change that replaced or removed the item with that ID
+     * still holds it, and otherwise the Store does. Called under the read lock.
+     */
+    private T listedByID(int id) {
+        for (Change<T> change : pending) {
+            if ((change.kind == SET || change.kind == REMOVE) && idOf.applyAsInt(change.oldItem) == id)
+                return change.oldItem;
+        }
+        return byID.get(id);
+    }
+
+    private int[] ids(List<T> list) {
+        int[] ids = new int[list.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = idOf.applyAsInt(list.get(i));
+        return ids;
+    }
+
+    /**
+     * @return the number of items
+     */
+    int size() {
+        lock.readLock().lock();
+        try {
+            return items.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id the ID to look up
+     * @return the item with the ID, or null
+     */
+    T get(int id) {
+        lock.readLock().lock();
+        try {
+            return byID.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param index the position in the Store
+     * @return the item at that position
+     */
+    T getAt(int index) {
+        lock.readLock().lock();
+        try {
+            return items.get(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param item the item to find
+     * @return the position of the item, or -1 if it is not in the Store
+     */
+    int indexOf(T item) {
+        lock.readLock().lock();
+        try {
+            int index = slots.get(idOf.applyAsInt(item));
+            return index >= 0 && items.get(index) == item ? index : -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id the ID to look up
+     * @return the position of the item with the ID, or -1
+     */
+    int indexOfID(int id) {
+        lock.readLock().lock();
+        try {
+            return slots.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the items whose names contain the query, ignoring case, in ID order.
+     *
+     * @param query the user-entered String to search
+     * @return the matching items
+     */
+    List<T> search(String query) {
+        lock.readLock().lock();
+        try {
+            int[] ids = names.search(query);
+            List<T> matches = new ArrayList<>(ids.length);
+            for (int id : ids)
+                matches.add(byID.get(id));
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the IDs of the items whose names contain the query, ignoring case, in ID order.
+     *
+     * @param query the user-entered String to search
+     * @return the IDs of the matching items
+     */
+    int[] searchIDs(String query) {
+        lock.readLock().lock();
+        try {
+            return names.search(query);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Narrows the result of an earlier name search to the items whose names contain a query that contains the earlier
+     * one. See NameIndex.refine().
+     *
+     * @param ids the IDs matched by the earlier query
+     * @param query the user-entered String to search
+     * @return the IDs of the matching items
+     */
+    int[] refineIDs(int[] ids, String query) {
+        lock.readLock().lock();
+        try {
+            return names.refine(ids, query);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param list a list returned by filter()
+     * @return the IDs of its rows in order, or null if the list is not a filter() list of this Store
+     */
+    int[] filterIDs(ObservableList<T> list) {
+        if (!(list instanceof PagedList) || ((PagedList<T>) list).store() != this)
+            return null;
+        return ((PagedList<T>) list).rows();
+    }
+
+    /**
+     * @return the number of items the last name search had to check
+     */
+    int lastSearchCandidates() {
+        return names.lastCandidateCount();
+    }
+
+    /**
+     * @return a copy of the items in Store order
+     */
+    List<T> snapshot() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(items);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds an item at the end of the Store.
+     *
+     * @param item the item to add
+     * @throws IllegalArgumentException if an item with the same ID is already in the Store
+     */
+    void add(T item) {
+        lock.writeLock().lock();
+        try {
+            int id = idOf.applyAsInt(item);
+            if (byID.get(id) != null)
+                throw new IllegalArgumentException("ID " + id + " is already in use");
+            items.add(item);
+            slots.put(id, items.size() - 1);
+            byID.put(id, item);
+            names.add(id, nameOf.apply(item));
+            pending.add(new Change<>(ADD, items.size() - 1, null, item));
+            observer.added(item);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleRefresh();
+    }
+
+    /**
+     * Adds a batch of items at the end of the Store under one write lock. The view receives the whole batch as a
+     * single addAll. If any ID is already in the Store, or appears twice in the batch, nothing is added.
+     *
+     * @param newItems the items to add
+     * @throws IllegalArgumentException if an ID is already in the Store or repeated in the batch
+     */
+    void addAll(Collection<? extends T> newItems) {
+        if (newItems.isEmpty())
+            return;
+        lock.writeLock().lock();
+        try {
+            List<T> batch = new ArrayList<>(newItems);
+            IntIntMap batchIDs = new IntIntMap(0);
+            for (T item : batch) {
+                int id = idOf.applyAsInt(item);
+                if (byID.get(id) != null || batchIDs.get(id) != 0)
+                    throw new IllegalArgumentException("ID " + id + " is already in use");
+                batchIDs.put(id, 1);
+            }
+            boolean background = batch.size() >= BACKGROUND_NAMES;
+            items.ensureCapacity(items.size() + batch.size());
+            byID.ensureCapacity(byID.size() + batch.size());
+            slots.ensureCapacity(slots.size() + batch.size());
+            for (T item : batch) {
+                int id = idOf.applyAsInt(item);
+                items.add(item);
+                slots.put(id, items.size() - 1);
+                byID.put(id, item);
+                if (!background)
+                    names.add(id, nameOf.apply(item));
+                else
+                    names.addLater(id, nameOf.apply(item));
+                observer.added(item);
+            }
+            if (background)
+                ForkJoinPool.commonPool().execute(this::buildNames);
+            pending.add(new Change<>(ADD_ALL, -1, null, null, batch));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleRefresh();
+    }
+
+    /**
+     * Indexes the names queued by a large addAll(). The read lock keeps writers out while the index is built;
+     * readers carry on, apart from name searches, which wait for the build to finish.
+     */
+    private void buildNames() {
+        lock.readLock().lock();
+        try {
+            names.buildPending();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces a batch of items, each matched to the item already in the Store with the same ID, under one write lock.
+     * Items whose ID is not in the Store are skipped. The view receives the result as a single setAll.
+     *
+     * @param newItems the updated items
+     * @return the number of items replaced
+     */
+    int replaceAll(Collection<? extends T> newItems) {
+        int replaced = 0;
+        lock.writeLock().lock();
+        try {
+            for (T item : newItems) {
+                int id = idOf.applyAsInt(item);
+                int index = slots.get(id);
+                if (index < 0)
+                    continue;
+                T oldItem = items.set(index, item);
+                byID.put(id, item);
+                names.add(id, nameOf.apply(item));
+                observer.replaced(oldItem, item);
+                replaced++;
+            }
+            if (replaced > 0)
+                pending.add(new Change<>(SET_ALL, -1, null, null));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (replaced > 0)
+            scheduleRefresh();
+        return replaced;
+    }
+
+    /**
+     * Replaces the item at a position.
+     *
+     * @param index the position in the Store
+     * @param item the new item
+     * @return the item that was replaced
+     * @throws IllegalArgumentException if the new item's ID is held by another item in the Store
+     */
+    T set(int index, T item) {
+        T oldItem;
+        lock.writeLock().lock();
+        try {
+            oldItem = setAt(index, item);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleRefresh();
+        return oldItem;
+    }
+
+    /**
+     * Replaces the item that has the given ID.
+     *
+     * @param id the ID of the item to replace
+     * @param item the new item
+     * @return whether an item with the ID was found and replaced
+     * @throws IllegalArgumentException if the new item's ID is held by another item in the Store
+     */
+    boolean replace(int id, T item) {
+        lock.writeLock().lock();
+        try {
+            int index = slots.get(id);
+            if (index < 0)
+                return false;
+            setAt(index, item);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleRefresh();
+        return true;
+    }
+
+    /**
+     * Replaces the item at a position. Called with the write lock held; the caller schedules the refresh once the
+     * lock is released.
+     */
+    private T setAt(int index, T item) {
+        T current = items.get(index);
+        int oldID = idOf.applyAsInt(current);
+        int id = idOf.applyAsInt(item);
+        if (id != oldID && byID.get(id) != null)
+            throw new IllegalArgumentException("ID " + id + " is already in use");
+        T oldItem = items.set(index, item);
+        if (oldID != id && byID.get(oldID) == oldItem) {
+            byID.remove(oldID);
+            names.remove(oldID);
+            slots.remove(oldID);
+        }
+        byID.put(id, item);
+        names.add(id, nameOf.apply(item));
+        slots.put(id, index);
+        pending.add(new Change<>(SET, index, oldItem, item));
+        observer.replaced(oldItem, item);
+        return oldItem;
+    }
+
+    /**
+     * Writes new values into the item that has the same ID, in place, so everything holding the item sees the change
+     * without the item being replaced. The values are exchanged rather than copied: afterwards, changes holds the
+     * item's previous values, and the observer is told the item was replaced by itself with changes as the old item.
+     *
+     * @param changes an item holding the new values
+     * @param swap exchanges the values of two items of the same class
+     * @return whether an item of the same class with the ID was found and updated
+     */
+    boolean modify(T changes, BiConsumer<T, T> swap) {
+        int id = idOf.applyAsInt(changes);
+        lock.writeLock().lock();
+        try {
+            T item = byID.get(id);
+            if (item == null || item.getClass() != changes.getClass())
+                return false;
+            observer.changing(item);
+            swap.accept(item, changes);
+            names.add(id, nameOf.apply(item));
+            pending.add(new Change<>(SET, slots.get(id), item, item));
+            observer.replaced(changes, item);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleRefresh();
+        return true;
+    }
+
+    /**
+     * Changes an item in place under the read lock, for a change that is safe to make alongside readers and alongside
+     * other such changes, such as an atomic stock adjustment. Writers are kept out while it runs, so the item cannot
+     * be replaced or removed part way through. The lists are told the item changed, but the observer is not told: the
+     * change must keep anything derived from the item up to date itself.
+     *
+     * @param id the ID of the item to change
+     * @param change makes the change
+     * @return whether an item with the ID was found and changed
+     */
+    boolean adjust(int id, Consumer<T> change) {
+        return read(() -> {
+            T item = byID.get(id);
+            if (item == null)
+                return false;
+            change.accept(item);
+            adjusted(item);
+            return true;
+        });
+    }
+
+    /**
+     * Runs an action under the read lock, e.g. a build that changes the stock of several items in place, and then
+     * refreshes the lists if the action reported any change through adjusted().
+     *
+     * @param action the action to run
+     * @param <R> the type of its result
+     * @return the result of the action
+     */
+    <R> R read(Supplier<R> action) {
+        R result;
+        lock.readLock().lock();
+        try {
+            result = action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!pending.isEmpty())
+            scheduleRefresh();
+        return result;
+    }
+
+    /**
+     * Runs an action under the write lock, so no change is in progress while it runs.
+     *
+     * @param action the action to run
+     * @param <R> the type of its result
+     * @return the result of the action
+     */
+    <R> R write(Supplier<R> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tells the lists that an item was changed in place. Called from an action passed to read().
+     *
+     * @param item the item that changed
+     */
+    void adjusted(T item) {
+        pending.add(new Change<>(SET, slots.get(idOf.applyAsInt(item)), item, item));
+    }
+
+    /**
+     * Removes an item. The positions of the items after it move down by one.
+     *
+     * @param item the item to remove
+     * @return whether the item was in the Store
+     */
+    boolean remove(T item) {
+        lock.writeLock().lock();
+        try {
+            int id = idOf.applyAsInt(item);
+            int index = slots.get(id);
+            if (index < 0 || items.get(index) != item)
+                return false;
+
+            items.remove(index);
+            byID.remove(id);
+            names.remove(id);
+            slots.remove(id);
+            for (int i = index; i < items.size(); i++)
+                slots.put(idOf.applyAsInt(items.get(i)), i);
+            pending.add(new Change<>(REMOVE, index, item, null));
+            observer.removed(item);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleRefresh();
+        return true;
+    }
+
+    /**
+     * Reports a change made inside an item, such as a product's associated parts, to the observer.
+     *
+     * @param item the item that changed
+     * @return whether the item is in the Store; nothing is reported if it is not
+     */
+    boolean touch(T item) {
+        lock.writeLock().lock();
+        try {
+            if (byID.get(idOf.applyAsInt(item)) != item)
+                return false;
+            observer.changed(item);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void scheduleRefresh() {
+        if (refreshScheduled.compareAndSet(false, true))
+            viewExecutor.execute(this::refreshView);
+    }
+
+    /**
+     * Passes every queued change to the lists, each as one change notification.
+     */
+    private void refreshView() {
+        synchronized (view) {
+            refreshScheduled.set(false);
+            applyPending();
+        }
+    }
+
+    /**
+     * Passes the queued changes to view() and the live filter() lists. The caller holds the view's monitor.
+     */
+    private void applyPending() {
+        if (pending.isEmpty())
+            return;
+        List<Change<T>> changes = new ArrayList<>();
+        Change<T> change;
+        while ((change = pending.poll()) != null)
+            changes.add(change);
+
+        List<PagedList<T>> lists = new ArrayList<>();
+        lists.add(view);
+        for (Iterator<WeakReference<PagedList<T>>> i = filters.iterator(); i.hasNext(); ) {
+            PagedList<T> list = i.next().get();
+            if (list == null)
+                i.remove();
+            else
+                lists.add(list);
+        }
+        for (PagedList<T> list : lists)
+            list.applyBatch(() -> apply(list, changes));
+    }
+
+    private void apply(PagedList<T> list, List<Change<T>> changes) {
+        for (Change<T> change : changes) {
+            if (change.kind == ADD) {
+                list.added(idOf.applyAsInt(change.newItem));
+            } else if (change.kind == ADD_ALL) {
+                list.addedAll(change.batch, idOf);
+            } else if (change.kind == SET_ALL) {
+                list.replacedAll();
+            } else if (change.kind == SET) {
+                list.replaced(change.slot, change.oldItem, idOf.applyAsInt(change.oldItem),
+                        idOf.applyAsInt(change.newItem));
+            } else {
+                list.removed(change.slot, change.oldItem, idOf.applyAsInt(change.oldItem));
+            }
+        }
+    }
+}
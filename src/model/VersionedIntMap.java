@@ -0,0 +1,233 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import java.util.function.Consumer;
+
+/**
+ * A map from int IDs to values that can be frozen in constant time, for point-in-time snapshots. The map is a trie
+ * with 32-way nodes, one level per five bits of the ID, each node holding only the children it has behind a bitmap.
+ *
+ * Every node records the generation it was made in. freeze() hands out the current root and starts a new generation;
+ * from then on a change copies each node on its path that a frozen root can still reach, instead of changing it, and
+ * the copies share every other node with the frozen version. Nodes newer than every open snapshot are changed in place,
+ * so with no snapshot open the map costs no more than an ordinary trie, and copying happens only while snapshots are
+ * open. A frozen version is reclaimed by the garbage collector once its snapshot is released and the map has copied
+ * away from its nodes.
+ *
+ * The map is not thread-safe; Versions guards it. A frozen root may be read from any thread.
+ *
+ * @param <V> the type of value
+ */
+class VersionedIntMap<V> {
+    private static final int BITS = 5;
+    private static final int TOP_SHIFT = 30;
+    private static final Object[] NONE = new Object[0];
+
+    /**
+     * One level of the trie. At the bottom level the slots hold values, above it child nodes.
+     */
+    private static final class Node {
+        final long generation;
+        int bitmap;
+        Object[] slots;
+
+        Node(long generation, int bitmap, Object[] slots) {
+            this.generation = generation;
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+
+    /**
+     * A version of the map as it was when freeze() was called. It never changes.
+     *
+     * @param <V> the type of value
+     */
+    static final class Frozen<V> {
+        private final Node root;
+        private final int size;
+        private final long generation;
+
+        private Frozen(Node root, int size, long generation) {
+            this.root = root;
+            this.size = size;
+            this.generation = generation;
+        }
+
+        /**
+         * @return the number of values in this version
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * @return the generation this version was frozen in
+         */
+        long generation() {
+            return generation;
+        }
+
+        /**
+         * @param key the ID to look up
+         * @return the value for the ID in this version, or null
+         */
+        V get(int key) {
+            return find(root, key);
+        }
+
+        /**
+         * @param action called with each value, in ascending ID order (IDs below zero last)
+         */
+        void forEach(Consumer<? super V> action) {
+            visit(root, TOP_SHIFT, action);
+        }
+    }
+
+    private Node root;
+    private int size;
+    private long generation = 1;
+    private long frozenUpTo;
+
+    /**
+     * @param key the ID to look up
+     * @return the current value for the ID, or null
+     */
+    V get(int key) {
+        return find(root, key);
+    }
+
+    /**
+     * @return the number of values in the map
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Hands out the map as it is now and starts a new generation, so nodes reachable from the frozen root are copied
+     * rather than changed from now on.
+     *
+     * @return the frozen version
+     */
+    Frozen<V> freeze() {
+        Frozen<V> frozen = new Frozen<>(root, size, generation);
+        frozenUpTo = generation++;
+        return frozen;
+    }
+
+    /**
+     * Says which nodes open snapshots can still reach: those made in or before the given generation. Nodes made later
+     * may be changed in place.
+     *
+     * @param newestOpen the generation of the newest open snapshot, or 0 if none is open
+     */
+    void setFrozenUpTo(long newestOpen) {
+        frozenUpTo = newestOpen;
+    }
+
+    /**
+     * @param key the ID
+     * @param value the value to store, not null
+     */
+    void put(int key, V value) {
+        root = put(root, TOP_SHIFT, key, value);
+    }
+
+    /**
+     * @param key the ID whose value to remove
+     */
+    void remove(int key) {
+        if (find(root, key) != null)
+            root = remove(root, TOP_SHIFT, key);
+    }
+
+    private Node editable(Node node) {
+        if (node == null)
+            return new Node(generation, 0, NONE);
+        if (node.generation > frozenUpTo)
+            return node;
+        return new Node(generation, node.bitmap, node.slots.clone());
+    }
+
+    private Node put(Node node, int shift, int key, Object value) {
+        Node editable = editable(node);
+        int bit = 1 << ((key >>> shift) & 31);
+        int index = Integer.bitCount(editable.bitmap & (bit - 1));
+        if ((editable.bitmap & bit) == 0) {
+            Object[] slots = new Object[editable.slots.length + 1];
+            System.arraycopy(editable.slots, 0, slots, 0, index);
+            System.arraycopy(editable.slots, index, slots, index + 1, editable.slots.length - index);
+            slots[index] = shift == 0 ? value : put(null, shift - BITS, key, value);
+            editable.slots = slots;
+            editable.bitmap |= bit;
+            if (shift == 0)
+                size++;
+        } else if (shift == 0) {
+            editable.slots[index] = value;
+        } else {
+            editable.slots[index] = put((Node) editable.slots[index], shift - BITS, key, value);
+        }
+        return editable;
+    }
+
+    /**
+     * Removes a key known to be in the map below node.
+     *
+     * @return the node, or null if it is left empty
+     */
+    private Node remove(Node node, int shift, int key) {
+        int bit = 1 << ((key >>> shift) & 31);
+        int index = Integer.bitCount(node.bitmap & (bit - 1));
+        Node child = shift == 0 ? null : remove((Node) node.slots[index], shift - BITS, key);
+        if (shift > 0 && child != null) {
+            Node editable = editable(node);
+            editable.slots[index] = child;
+            return editable;
+        }
+        if (node.bitmap == bit) {
+            if (shift == 0)
+                size--;
+            return null;
+        }
+        Node editable = editable(node);
+        Object[] slots = new Object[editable.slots.length - 1];
+        System.arraycopy(editable.slots, 0, slots, 0, index);
+        System.arraycopy(editable.slots, index + 1, slots, index, slots.length - index);
+        editable.slots = slots;
+        editable.bitmap &= ~bit;
+        if (shift == 0)
+            size--;
+        return editable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V find(Node node, int key) {
+        for (int shift = TOP_SHIFT; node != null; shift -= BITS) {
+            int bit = 1 << ((key >>> shift) & 31);
+            if ((node.bitmap & bit) == 0)
+                return null;
+            Object slot = node.slots[Integer.bitCount(node.bitmap & (bit - 1))];
+            if (shift == 0)
+                return (V) slot;
+            node = (Node) slot;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void visit(Node node, int shift, Consumer<? super V> action) {
+        if (node == null)
+            return;
+        for (Object slot : node.slots) {
+            if (shift == 0)
+                action.accept((V) slot);
+            else
+                visit((Node) slot, shift - BITS, action);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps every version of the parts and products that an open InventorySnapshot can see. The current version is a pair
+ * of VersionedIntMaps from ID to the live part or product, changed only when one is added, replaced by another object
+ * or deleted; a change made in place, such as a stock adjustment, leaves the maps alone.
+ *
+ * Opening a snapshot freezes both maps, which takes the same short time however big the inventory is. Snapshots
+ * opened with no change in between share one version. A part or product changed in place after a snapshot was opened
+ * is copied just before its first such change, and the snapshot reads the copy instead of the live object. Nothing is
+ * copied while no snapshot is open, and a change then costs no more than a read of the reader count. Each version
+ * counts its readers; once the last one is released, the copies only it needed are dropped and the maps stop copying
+ * the nodes only it could reach, so both are left for the garbage collector.
+ *
+ * Every change made in place runs under a Store lock, and snapshots are opened under both Store write locks, so no
+ * change is part way through when a version is frozen. Like the indexes, Versions never takes a Store lock itself.
+ */
+class Versions {
+
+    /**
+     * A frozen pair of maps and the number of open snapshots reading it.
+     */
+    static final class Version {
+        final VersionedIntMap.Frozen<Part> parts;
+        final VersionedIntMap.Frozen<Product> products;
+        int readers;
+
+        private Version(VersionedIntMap.Frozen<Part> parts, VersionedIntMap.Frozen<Product> products) {
+            this.parts = parts;
+            this.products = products;
+        }
+
+        long generation() {
+            return parts.generation();
+        }
+    }
+
+    /**
+     * A copy of an item taken just before its first change in place after the version with generation upTo was
+     * frozen. It holds the item's values for every version from the one after the next older copy up to upTo. The
+     * copies of an item are chained newest first, and kept by the item itself rather than its ID, which modify() may
+     * change.
+     */
+    private static final class Saved<T> {
+        final T copy;
+        final long upTo;
+        Saved<T> older;
+
+        Saved(T copy, long upTo, Saved<T> older) {
+            this.copy = copy;
+            this.upTo = upTo;
+            this.older = older;
+        }
+    }
+
+    private final VersionedIntMap<Part> parts = new VersionedIntMap<>();
+    private final VersionedIntMap<Product> products = new VersionedIntMap<>();
+    private final Map<Part, Saved<Part>> savedParts = new IdentityHashMap<>();
+    private final Map<Product, Saved<Product>> savedProducts = new IdentityHashMap<>();
+    private final TreeMap<Long, Version> open = new TreeMap<>();
+    private Version latest;
+    private long latestGeneration;
+    private boolean changed;
+    private volatile int readers;
+
+    /**
+     * @param part a part that was added
+     */
+    synchronized void partAdded(Part part) {
+        parts.put(part.getId(), part);
+        changed = true;
+    }
+
+    /**
+     * @param oldID the ID of the part that was replaced
+     * @param part the part now in the inventory, which may be the same object holding new values
+     */
+    synchronized void partReplaced(int oldID, Part part) {
+        if (oldID != part.getId())
+            parts.remove(oldID);
+        if (parts.get(part.getId()) != part) {
+            parts.put(part.getId(), part);
+            changed = true;
+        }
+    }
+
+    /**
+     * @param id the ID of a part that left the inventory
+     */
+    synchronized void partRemoved(int id) {
+        parts.remove(id);
+        changed = true;
+    }
+
+    /**
+     * @param product a product that was added
+     */
+    synchronized void productAdded(Product product) {
+        products.put(product.getID(), product);
+        changed = true;
+    }
+
+    /**
+     * @param oldID the ID of the product that was replaced
+     * @param product the product now in the inventory
+     */
+    synchronized void productReplaced(int oldID, Product product) {
+        if (oldID != product.getID())
+            products.remove(oldID);
+        if (products.get(product.getID()) != product) {
+            products.put(product.getID(), product);
+            changed = true;
+        }
+    }
+
+    /**
+     * @param id the ID of a product that left the inventory
+     */
+    synchronized void productRemoved(int id) {
+        products.remove(id);
+        changed = true;
+    }
+
+    /**
+     * Called under a Store lock just before a part in the inventory is changed in place.
+     *
+     * @param part the part, still holding its old values
+     */
+    void partChanging(Part part) {
+        if (readers > 0)
+            save(part);
+    }
+
+    /**
+     * Called under a Store lock just before a product in the inventory is changed in place.
+     *
+     * @param product the product, still holding its old values
+     */
+    void productChanging(Product product) {
+        if (readers > 0)
+            save(product);
+    }
+
+    /**
+     * Called under the Store read locks before a build runs, since it may change any of its parts and products.
+     *
+     * @param build the planned build
+     */
+    void building(BuildTransaction build) {
+        if (readers == 0)
+            return;
+        synchronized (this) {
+            for (int i = 0; i < build.partCount(); i++)
+                save(build.part(i));
+            for (int i = 0; i < build.productCount(); i++)
+                save(build.product(i));
+        }
+    }
+
+    private synchronized void save(Part part) {
+        if (readers == 0 || parts.get(part.getId()) != part)
+            return;
+        Saved<Part> newest = savedParts.get(part);
+        if (newest != null && newest.upTo == latestGeneration)
+            return;
+        savedParts.put(part, new Saved<>(copy(part), latestGeneration, newest));
+        changed = true;
+    }
+
+    private synchronized void save(Product product) {
+        if (readers == 0 || products.get(product.getID()) != product)
+            return;
+        Saved<Product> newest = savedProducts.get(product);
+        if (newest != null && newest.upTo == latestGeneration)
+            return;
+        savedProducts.put(product, new Saved<>(product.copy(), latestGeneration, newest));
+        changed = true;
+    }
+
+    /**
+     * @param version an acquired version
+     * @param part a part in the version's map
+     * @return a copy of the part as it was in the version
+     */
+    synchronized Part partAsOf(Version version, Part part) {
+        Saved<Part> saved = savedAsOf(savedParts.get(part), version.generation());
+        return copy(saved == null ? part : saved.copy);
+    }
+
+    /**
+     * @param version an acquired version
+     * @param product a product in the version's map
+     * @return a copy of the product as it was in the version
+     */
+    synchronized Product productAsOf(Version version, Product product) {
+        Saved<Product> saved = savedAsOf(savedProducts.get(product), version.generation());
+        return (saved == null ? product : saved.copy).copy();
+    }
+
+    /**
+     * Finds the oldest copy of an item taken after a version was frozen, which holds the item's values in that
+     * version. Without one, the item has not changed since.
+     */
+    private static <T> Saved<T> savedAsOf(Saved<T> newest, long generation) {
+        Saved<T> found = null;
+        for (Saved<T> saved = newest; saved != null && saved.upTo >= generation; saved = saved.older)
+            found = saved;
+        return found;
+    }
+
+    /**
+     * @return the current version, with one more reader; the version already open if nothing has changed since
+     */
+    synchronized Version acquire() {
+        if (latest == null || changed) {
+            latest = new Version(parts.freeze(), products.freeze());
+            latestGeneration = latest.generation();
+            changed = false;
+        }
+        if (latest.readers++ == 0) {
+            open.put(latest.generation(), latest);
+            frozenUpTo(latest.generation());
+        }
+        readers++;
+        return latest;
+    }
+
+    /**
+     * @param version a version returned by acquire(), with one reader fewer
+     */
+    synchronized void release(Version version) {
+        readers--;
+        if (--version.readers > 0)
+            return;
+        open.remove(version.generation());
+        if (version == latest)
+            latest = null;
+        if (open.isEmpty()) {
+            savedParts.clear();
+            savedProducts.clear();
+            frozenUpTo(0);
+        } else {
+            drop(savedParts, open.firstKey());
+            drop(savedProducts, open.firstKey());
+            frozenUpTo(open.lastKey());
+        }
+    }
+
+    /**
+     * @return the number of snapshots acquired and not yet released
+     */
+    int readers() {
+        return readers;
+    }
+
+    private void frozenUpTo(long generation) {
+        parts.setFrozenUpTo(generation);
+        products.setFrozenUpTo(generation);
+    }
+
+    /**
+     * Drops the copies no open version is old enough to need.
+     */
+    private static <T> void drop(Map<T, Saved<T>> saved, long oldestOpen) {
+        for (Iterator<Saved<T>> chains = saved.values().iterator(); chains.hasNext(); ) {
+            Saved<T> keep = chains.next();
+            if (keep.upTo < oldestOpen) {
+                chains.remove();
+                continue;
+            }
+            while (keep.older != null && keep.older.upTo >= oldestOpen)
+                keep = keep.older;
+            keep.older = null;
+        }
+    }
+
+    private static Part copy(Part part) {
+        if (part instanceof InHouse) {
+            return new InHouse(part.getId(), part.getName(), part.getPrice(), part.getStock(), part.getMin(),
+                    part.getMax(), ((InHouse) part).getMachineID());
+        }
+        return new Outsourced(part.getId(), part.getName(), part.getPrice(), part.getStock(), part.getMin(),
+                part.getMax(), ((Outsourced) part).getCompanyName());
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+/**
+ * A reverse index from each part ID to the IDs of the products it is associated with. Finding where a part is used
+ * costs as much as the number of products using it, rather than a walk over every product's associated parts.
+ *
+ * The index remembers which part IDs it last recorded for each product, so when a product changes only the
+ * difference between that and the product's current associated parts is applied.
+ */
+class WhereUsed {
+    private static final int[] NONE = new int[0];
+
+    private final IntMap<SortedIntSet> productsByPart = new IntMap<>();
+    private final IntMap<int[]> partsByProduct = new IntMap<>();
+
+    /**
+     * Records the current associated parts of a product, replacing what was recorded for it before.
+     *
+     * @param product the product to index
+     */
+    synchronized void index(Product product) {
+        int productID = product.getID();
+        int[] now = partIDs(product.getAssociatedPartLines());
+        int[] before = partsByProduct.get(productID);
+        if (before == null)
+            before = NONE;
+
+        int i = 0;
+        int j = 0;
+        while (i < before.length || j < now.length) {
+            if (j == now.length || (i < before.length && before[i] < now[j])) {
+                unlink(before[i++], productID);
+            } else if (i == before.length || now[j] < before[i]) {
+                link(now[j++], productID);
+            } else {
+                i++;
+                j++;
+            }
+        }
+
+        if (now.length == 0)
+            partsByProduct.remove(productID);
+        else
+            partsByProduct.put(productID, now);
+    }
+
+    /**
+     * Forgets everything recorded for a product.
+     *
+     * @param productID the ID of the product
+     */
+    synchronized void unindex(int productID) {
+        int[] before = partsByProduct.remove(productID);
+        if (before == null)
+            return;
+        for (int partID : before)
+            unlink(partID, productID);
+    }
+
+    /**
+     * @param partID the ID of the part
+     * @return the IDs of the products using the part, in ascending order
+     */
+    synchronized int[] productsUsing(int partID) {
+        SortedIntSet products = productsByPart.get(partID);
+        return products == null ? NONE : products.toArray();
+    }
+
+    /**
+     * @param partID the ID of the part
+     * @return the number of products using the part
+     */
+    synchronized int useCount(int partID) {
+        SortedIntSet products = productsByPart.get(partID);
+        return products == null ? 0 : products.size();
+    }
+
+    private void link(int partID, int productID) {
+        SortedIntSet products = productsByPart.get(partID);
+        if (products == null) {
+            products = new SortedIntSet();
+            productsByPart.put(partID, products);
+        }
+        products.add(productID);
+    }
+
+    private void unlink(int partID, int productID) {
+        SortedIntSet products = productsByPart.get(partID);
+        if (products != null && products.remove(productID) && products.isEmpty())
+            productsByPart.remove(partID);
+    }
+
+    /**
+     * @return the part IDs of the lines, which are already distinct and in ascending order
+     */
+    private static int[] partIDs(long[] lines) {
+        if (lines.length == 0)
+            return NONE;
+        int[] ids = new int[lines.length];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = Product.partID(lines[i]);
+        return ids;
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits and writes rows of comma-separated values. A field that holds a comma, a quote or a line break, or that starts
+ * or ends with a space, is wrapped in quotes, with any quote inside it doubled. A quoted field may span lines, so a row
+ * is read line by line until inQuotes() says it is complete. Space around an unquoted field is dropped; a quoted field
+ * is kept as written.
+ */
+class Csv {
+
+    /**
+     * @param record the lines of a row read so far, joined by line breaks
+     * @return whether the row ends inside a quoted field, so the next line belongs to it
+     */
+    static boolean inQuotes(String record) {
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            if (record.charAt(i) == '"')
+                quoted = !quoted;
+        }
+        return quoted;
+    }
+
+    /**
+     * @param record the row to split
+     * @return the fields of the row, unquoted
+     */
+    static String[] split(String record) {
+        List<String> fields = new ArrayList<>(8);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c != '"')
+                    field.append(c);
+                else if (i + 1 < record.length() && record.charAt(i + 1) == '"')
+                    field.append(record.charAt(++i));
+                else
+                    quoted = false;
+            } else if (c == '"') {
+                if (!wasQuoted && field.toString().trim().isEmpty())
+                    field.setLength(0);
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                fields.add(wasQuoted ? field.toString() : field.toString().trim());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (!wasQuoted || !Character.isWhitespace(c)) {
+                field.append(c);
+            }
+        }
+        fields.add(wasQuoted ? field.toString() : field.toString().trim());
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+     * Appends a field, quoting it if it needs to be.
+     *
+     * @param out the row being built
+     * @param field the field to append
+     */
+    static void append(StringBuilder out, String field) {
+        if (field == null)
+            return;
+        if (!needsQuotes(field)) {
+            out.append(field);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"')
+                out.append('"');
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private static boolean needsQuotes(String field) {
+        if (field.isEmpty())
+            return false;
+        if (Character.isWhitespace(field.charAt(0)) || Character.isWhitespace(field.charAt(field.length() - 1)))
+            return true;
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r')
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package persistence;
+
+import model.InHouse;
+import model.Inventory;
+import model.InventorySnapshot;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes the inventory out as CSV files in the layout CsvImporter reads. Each export reads an InventorySnapshot, so
+ * the file holds every part or product exactly as it was when the export began, however the inventory changes while
+ * it is written. The parts and products are copied one at a time as they are written, never as a whole list, and no
+ * lock is held while the file is written.
+ */
+public class CsvExporter {
+
+    /**
+     * Writes every part to a CSV file.
+     *
+     * @param file the file to write
+     * @return the number of parts written
+     * @throws IOException if the file can't be written
+     */
+    public static int exportParts(Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            return exportParts(out);
+        }
+    }
+
+    /**
+     * Writes every part as CSV text.
+     *
+     * @param out where to write the text
+     * @return the number of parts written
+     * @throws IOException if the text can't be written
+     */
+    public static int exportParts(Writer out) throws IOException {
+        out.write("type,id,name,price,stock,min,max,machineID/company\n");
+        StringBuilder line = new StringBuilder(128);
+        try (InventorySnapshot snapshot = Inventory.openSnapshot()) {
+            snapshot.forEachPart(part -> {
+                line.setLength(0);
+                line.append(part instanceof Outsourced ? "Outsourced" : "InHouse").append(',').append(part.getId())
+                        .append(',');
+                Csv.append(line, part.getName());
+                line.append(',').append(part.getPrice()).append(',').append(part.getStock()).append(',')
+                        .append(part.getMin()).append(',').append(part.getMax()).append(',');
+                if (part instanceof Outsourced)
+                    Csv.append(line, ((Outsourced) part).getCompanyName());
+                else
+                    line.append(((InHouse) part).getMachineID());
+                write(out, line);
+            });
+            out.flush();
+            return snapshot.getPartCount();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes every product to a CSV file.
+     *
+     * @param file the file to write
+     * @return the number of products written
+     * @throws IOException if the file can't be written
+     */
+    public static int exportProducts(Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            return exportProducts(out);
+        }
+    }
+
+    /**
+     * Writes every product as CSV text.
+     *
+     * @param out where to write the text
+     * @return the number of products written
+     * @throws IOException if the text can't be written
+     */
+    public static int exportProducts(Writer out) throws IOException {
+        out.write("id,name,price,stock,min,max,parts\n");
+        StringBuilder line = new StringBuilder(128);
+        try (InventorySnapshot snapshot = Inventory.openSnapshot()) {
+            snapshot.forEachProduct(product -> {
+                line.setLength(0);
+                line.append(product.getID()).append(',');
+                Csv.append(line, product.getName());
+                line.append(',').append(product.getPrice()).append(',').append(product.getStock()).append(',')
+                        .append(product.getMin()).append(',').append(product.getMax()).append(',');
+                long[] lines = product.getAssociatedPartLines();
+                for (int i = 0; i < lines.length; i++) {
+                    if (i > 0)
+                        line.append(';');
+                    line.append(Product.partID(lines[i]));
+                    if (Product.quantity(lines[i]) > 1)
+                        line.append(':').append(Product.quantity(lines[i]));
+                }
+                write(out, line);
+            });
+            out.flush();
+            return snapshot.getProductCount();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes one row from inside a snapshot walk, which can't throw a checked exception.
+     */
+    private static void write(Writer out, StringBuilder line) {
+        try {
+            out.append(line).append('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,500 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package persistence;
+
+import model.InHouse;
+import model.Inventory;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Imports parts and products from CSV files too large to enter through the forms. The parts file has the columns
+ *
+ * type, ID, name, price, stock, min, max, machine ID or company name
+ *
+ * where type is InHouse or Outsourced, and the products file has the columns
+ *
+ * ID, name, price, stock, min, max, associated part IDs
+ *
+ * with the associated parts separated by semicolons, each a part ID optionally followed by a colon and a quantity,
+ * e.g. "12;14:4". A part ID listed more than once has its quantities added together. A first line that starts with
+ * the column name "type" (parts) or "ID" (products) is skipped. A row with a blank ID is given a new ID; a row whose
+ * ID is already in the inventory replaces that part or product.
+ *
+ * A quoted field may span lines. The file is read a chunk of rows at a time and each chunk is parsed on the fork-join
+ * pool while the next one is read. Chunks are committed in file order, in batches, so the inventory and the tables take one change per batch
+ * instead of one per row. Each row gets the same checks as the Add Part and Add Product forms; a row that fails them
+ * is left out and noted in the ImportResult instead of stopping the import.
+ */
+public class CsvImporter {
+    private static final int CHUNK_LINES = 4096;
+    private static final int BATCH_SIZE = 50_000;
+    private static final int IN_FLIGHT = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+
+    /**
+     * Imports the parts in a CSV file.
+     *
+     * @param file the file to read
+     * @return the rows added, updated and rejected
+     * @throws IOException if the file can't be read
+     */
+    public static ImportResult importParts(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importParts(in);
+        }
+    }
+
+    /**
+     * Imports the parts in CSV text.
+     *
+     * @param in the text to read
+     * @return the rows added, updated and rejected
+     * @throws IOException if the text can't be read
+     */
+    public static ImportResult importParts(Reader in) throws IOException {
+        return read(in, "type", CsvImporter::parsePart, new PartBatch());
+    }
+
+    /**
+     * Imports the products in a CSV file. The associated parts must already be in the inventory.
+     *
+     * @param file the file to read
+     * @return the rows added, updated and rejected
+     * @throws IOException if the file can't be read
+     */
+    public static ImportResult importProducts(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importProducts(in);
+        }
+    }
+
+    /**
+     * Imports the products in CSV text.
+     *
+     * @param in the text to read
+     * @return the rows added, updated and rejected
+     * @throws IOException if the text can't be read
+     */
+    public static ImportResult importProducts(Reader in) throws IOException {
+        return read(in, "id", CsvImporter::parseProduct, new ProductBatch());
+    }
+
+    private static <T> ImportResult read(Reader reader, String header, RowParser<T> parser, Batch<T> batch)
+            throws IOException {
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        ImportResult result = new ImportResult();
+        ArrayDeque<ForkJoinTask<Chunk<T>>> parsing = new ArrayDeque<>();
+
+        List<String> records = new ArrayList<>(CHUNK_LINES);
+        int[] recordLines = new int[CHUNK_LINES];
+        int lineNumber = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            int recordLine = lineNumber;
+            String record = line;
+            while (Csv.inQuotes(record) && (line = in.readLine()) != null) {
+                lineNumber++;
+                record = record + '\n' + line;
+            }
+            if (recordLine == 1 && record.regionMatches(true, 0, header, 0, header.length()))
+                continue;
+            recordLines[records.size()] = recordLine;
+            records.add(record);
+            if (records.size() == CHUNK_LINES) {
+                if (parsing.size() == IN_FLIGHT)
+                    batch.take(parsing.poll().join(), result);
+                parsing.add(submit(records, recordLines, parser));
+                records = new ArrayList<>(CHUNK_LINES);
+                recordLines = new int[CHUNK_LINES];
+            }
+        }
+        if (!records.isEmpty())
+            parsing.add(submit(records, recordLines, parser));
+        while (!parsing.isEmpty())
+            batch.take(parsing.poll().join(), result);
+        batch.finish(result);
+        return result;
+    }
+
+    /**
+     * @param records the rows of the chunk, each one line unless a quoted field spans lines
+     * @param recordLines the line number each row starts on
+     */
+    private static <T> ForkJoinTask<Chunk<T>> submit(List<String> records, int[] recordLines, RowParser<T> parser) {
+        return ForkJoinPool.commonPool().submit(() -> {
+            Chunk<T> chunk = new Chunk<>(records.size());
+            StringBuilder problems = new StringBuilder();
+            for (int i = 0; i < records.size(); i++) {
+                String record = records.get(i);
+                if (record.trim().isEmpty())
+                    continue;
+                problems.setLength(0);
+                T row = parser.parse(Csv.split(record), problems);
+                if (problems.length() > 0)
+                    chunk.error(recordLines[i], problems.toString());
+                else
+                    chunk.row(recordLines[i], row);
+            }
+            return chunk;
+        });
+    }
+
+    private static Part parsePart(String[] fields, StringBuilder problems) {
+        if (fields.length != 8) {
+            problem(problems, "Expected 8 columns but found " + fields.length + ".");
+            return null;
+        }
+        String type = fields[0].replace("-", "").replace(" ", "");
+        boolean inHouse = type.equalsIgnoreCase("InHouse");
+        if (!inHouse && !type.equalsIgnoreCase("Outsourced"))
+            problem(problems, "Type must be InHouse or Outsourced.");
+
+        int id = parseID(fields[1], problems);
+        double price = parsePrice(fields[3], problems);
+        int[] levels = parseLevels(fields, 4, problems);
+        int machineID = 0;
+        if (inHouse)
+            machineID = parseInt(fields[7], "Machine ID", problems);
+        if (problems.length() > 0)
+            return null;
+
+        if (inHouse)
+            return new InHouse(id, fields[2], price, levels[0], levels[1], levels[2], machineID);
+        return new Outsourced(id, fields[2], price, levels[0], levels[1], levels[2], fields[7]);
+    }
+
+    private static ProductRow parseProduct(String[] fields, StringBuilder problems) {
+        if (fields.length != 6 && fields.length != 7) {
+            problem(problems, "Expected 7 columns but found " + fields.length + ".");
+            return null;
+        }
+        int id = parseID(fields[0], problems);
+        double price = parsePrice(fields[2], problems);
+        int[] levels = parseLevels(fields, 3, problems);
+
+        int[] partIDs = new int[0];
+        int[] quantities = new int[0];
+        if (fields.length == 7 && !fields[6].isEmpty()) {
+            String[] lines = fields[6].split(";");
+            partIDs = new int[lines.length];
+            quantities = new int[lines.length];
+            for (int i = 0; i < lines.length; i++) {
+                String line = lines[i].trim();
+                int colon = line.indexOf(':');
+                int errors = problems.length();
+                partIDs[i] = parseInt(colon < 0 ? line : line.substring(0, colon).trim(), "Associated part ID",
+                        problems);
+                if (problems.length() == errors && partIDs[i] < 0)
+                    problem(problems, "Associated part ID must not be below 0.");
+                quantities[i] = 1;
+                if (colon >= 0) {
+                    errors = problems.length();
+                    quantities[i] = parseInt(line.substring(colon + 1).trim(), "Quantity", problems);
+                    if (problems.length() == errors && quantities[i] < 1)
+                        problem(problems, "Quantity must be at least 1.");
+                }
+            }
+        }
+        if (problems.length() > 0)
+            return null;
+        return new ProductRow(new Product(id, fields[1], price, levels[0], levels[1], levels[2]), partIDs,
+                quantities);
+    }
+
+    private static int parseID(String field, StringBuilder problems) {
+        if (field.isEmpty())
+            return 0;
+        int id = parseInt(field, "ID", problems);
+        if (id < 0)
+            problem(problems, "ID must be positive.");
+        return id;
+    }
+
+    private static double parsePrice(String field, StringBuilder problems) {
+        try {
+            return Double.parseDouble(field);
+        } catch (NumberFormatException e) {
+            problem(problems, "Price must be a number.");
+            return -1;
+        }
+    }
+
+    /**
+     * Reads the stock, min and max columns and checks that the stock lies between min and max.
+     */
+    private static int[] parseLevels(String[] fields, int first, StringBuilder problems) {
+        int errors = problems.length();
+        int stock = parseInt(fields[first], "Inventory", problems);
+        int min = parseInt(fields[first + 1], "Min", problems);
+        int max = parseInt(fields[first + 2], "Max", problems);
+        if (problems.length() == errors) {
+            if (min > max)
+                problem(problems, "Min must be less than max.");
+            if (stock > max || stock < min)
+                problem(problems, "Inventory must be between min and max.");
+        }
+        return new int[] {stock, min, max};
+    }
+
+    private static int parseInt(String field, String column, StringBuilder problems) {
+        try {
+            return Integer.parseInt(field);
+        } catch (NumberFormatException e) {
+            problem(problems, column + " must be an integer.");
+            return -1;
+        }
+    }
+
+    private static void problem(StringBuilder problems, String message) {
+        if (problems.length() > 0)
+            problems.append(' ');
+        problems.append(message);
+    }
+
+    /**
+     * Turns the fields of one row of the file into a row, appending a message to problems for each field that is wrong.
+     */
+    private interface RowParser<T> {
+        T parse(String[] fields, StringBuilder problems);
+    }
+
+    /**
+     * The parsed rows of one chunk, with the line number each row and each rejected row starts on.
+     */
+    private static final class Chunk<T> {
+        final List<T> rows;
+        int[] rowLines;
+        final List<String> errors = new ArrayList<>();
+        final List<Integer> errorLines = new ArrayList<>();
+
+        Chunk(int size) {
+            rows = new ArrayList<>(size);
+            rowLines = new int[size];
+        }
+
+        void row(int line, T row) {
+            rowLines[rows.size()] = line;
+            rows.add(row);
+        }
+
+        void error(int line, String message) {
+            errorLines.add(line);
+            errors.add(message);
+        }
+    }
+
+    /**
+     * A product and the parts to associate with it once the product is committed.
+     */
+    private static final class ProductRow {
+        final Product product;
+        final int[] partIDs;
+        final int[] quantities;
+
+        ProductRow(Product product, int[] partIDs, int[] quantities) {
+            this.product = product;
+            this.partIDs = partIDs;
+            this.quantities = quantities;
+        }
+    }
+
+    /**
+     * Collects parsed rows in file order and commits them to the inventory once there are BATCH_SIZE of them. Rows
+     * with a blank ID are held back until the end of the file, so the block of new IDs reserved for them is taken
+     * from above every ID the file gives.
+     */
+    private abstract static class Batch<T> {
+        private final Rows<T> numbered = new Rows<>();
+        private final Rows<T> unnumbered = new Rows<>();
+        private final BitSet seenIDs = new BitSet();
+
+        abstract int id(T row);
+
+        abstract void setID(T row, int id);
+
+        /**
+         * Gets a row ready to be committed.
+         *
+         * @return null if it is, otherwise the reason it can't be
+         */
+        abstract String prepare(T row);
+
+        abstract boolean exists(int id);
+
+        abstract void add(List<T> rows);
+
+        abstract int update(List<T> rows);
+
+        void take(Chunk<T> chunk, ImportResult result) {
+            for (int i = 0; i < chunk.errors.size(); i++)
+                result.error(chunk.errorLines.get(i), chunk.errors.get(i));
+            for (int i = 0; i < chunk.rows.size(); i++) {
+                T row = chunk.rows.get(i);
+                int id = id(row);
+                if (id == 0) {
+                    unnumbered.add(row, chunk.rowLines[i]);
+                } else if (seenIDs.get(id)) {
+                    result.error(chunk.rowLines[i], "ID " + id + " is already used by an earlier row.");
+                } else {
+                    seenIDs.set(id);
+                    numbered.add(row, chunk.rowLines[i]);
+                    if (numbered.rows.size() == BATCH_SIZE)
+                        flush(result);
+                }
+            }
+        }
+
+        /**
+         * Commits the collected rows that have an ID.
+         */
+        void flush(ImportResult result) {
+            List<T> adds = new ArrayList<>();
+            List<T> updates = new ArrayList<>();
+            for (int i = 0; i < numbered.rows.size(); i++) {
+                T row = numbered.rows.get(i);
+                String problem = prepare(row);
+                if (problem != null)
+                    result.error(numbered.lines[i], problem);
+                else if (exists(id(row)))
+                    updates.add(row);
+                else
+                    adds.add(row);
+            }
+            numbered.rows.clear();
+
+            if (!adds.isEmpty())
+                add(adds);
+            if (!updates.isEmpty())
+                result.updated(update(updates));
+            result.added(adds.size());
+        }
+
+        /**
+         * Commits the last rows that have an ID, then numbers and commits the rows that don't.
+         */
+        void finish(ImportResult result) {
+            flush(result);
+            List<T> ready = new ArrayList<>(unnumbered.rows.size());
+            for (int i = 0; i < unnumbered.rows.size(); i++) {
+                T row = unnumbered.rows.get(i);
+                String problem = prepare(row);
+                if (problem != null)
+                    result.error(unnumbered.lines[i], problem);
+                else
+                    ready.add(row);
+            }
+            unnumbered.rows.clear();
+            if (ready.isEmpty())
+                return;
+
+            int id = Inventory.reserveAutoIDs(ready.size());
+            for (T row : ready)
+                setID(row, id++);
+            for (int from = 0; from < ready.size(); from += BATCH_SIZE)
+                add(ready.subList(from, Math.min(ready.size(), from + BATCH_SIZE)));
+            result.added(ready.size());
+        }
+    }
+
+    /**
+     * Rows waiting to be committed, with the line each came from.
+     */
+    private static final class Rows<T> {
+        final List<T> rows = new ArrayList<>();
+        int[] lines = new int[1024];
+
+        void add(T row, int line) {
+            if (rows.size() == lines.length)
+                lines = Arrays.copyOf(lines, lines.length * 2);
+            lines[rows.size()] = line;
+            rows.add(row);
+        }
+    }
+
+    private static final class PartBatch extends Batch<Part> {
+        int id(Part part) {
+            return part.getId();
+        }
+
+        void setID(Part part, int id) {
+            part.setId(id);
+        }
+
+        String prepare(Part part) {
+            return null;
+        }
+
+        boolean exists(int id) {
+            return Inventory.lookupPart(id) != null;
+        }
+
+        void add(List<Part> parts) {
+            Inventory.addParts(parts);
+        }
+
+        int update(List<Part> parts) {
+            return Inventory.updateParts(parts);
+        }
+    }
+
+    private static final class ProductBatch extends Batch<ProductRow> {
+        int id(ProductRow row) {
+            return row.product.getID();
+        }
+
+        void setID(ProductRow row, int id) {
+            row.product.setID(id);
+        }
+
+        String prepare(ProductRow row) {
+            double partsCost = 0;
+            for (int i = 0; i < row.partIDs.length; i++) {
+                Part part = Inventory.lookupPart(row.partIDs[i]);
+                if (part == null)
+                    return "Associated part " + row.partIDs[i] + " is not in the inventory.";
+                partsCost += part.getPrice() * row.quantities[i];
+            }
+            if (row.product.getPrice() < partsCost)
+                return "Price must be at least the cost of the parts.";
+            row.product.setAssociatedParts(row.partIDs, row.quantities);
+            return null;
+        }
+
+        boolean exists(int id) {
+            return Inventory.lookupProduct(id) != null;
+        }
+
+        void add(List<ProductRow> rows) {
+            List<Product> products = new ArrayList<>(rows.size());
+            for (ProductRow row : rows)
+                products.add(row.product);
+            Inventory.addProducts(products);
+        }
+
+        int update(List<ProductRow> rows) {
+            List<Product> products = new ArrayList<>(rows.size());
+            for (ProductRow row : rows)
+                products.add(row.product);
+            return Inventory.updateProducts(products);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package persistence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a CSV import: how many rows were added or updated, and what was wrong with the rows that were not.
+ * Only the first MAX_ERRORS messages are kept, but every rejected row is counted.
+ */
+public class ImportResult {
+    /**
+     * The most error messages kept for one import.
+     */
+    public static final int MAX_ERRORS = 1000;
+
+    private int added;
+    private int updated;
+    private int errorCount;
+    private final List<String> errors = new ArrayList<>();
+
+    void added(int count) {
+        added += count;
+    }
+
+    void updated(int count) {
+        updated += count;
+    }
+
+    void error(int line, String message) {
+        errorCount++;
+        if (errors.size() < MAX_ERRORS)
+            errors.add("Line " + line + ": " + message);
+    }
+
+    /**
+     * @return the number of rows added to the inventory
+     */
+    public int getAdded() {
+        return added;
+    }
+
+    /**
+     * @return the number of rows that replaced a part or product with the same ID
+     */
+    public int getUpdated() {
+        return updated;
+    }
+
+    /**
+     * @return the number of rows rejected
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * @return a message for each rejected row, up to MAX_ERRORS, in file order
+     */
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    @Override
+    public String toString() {
+        return added + " added, " + updated + " updated, " + errorCount + " rejected";
+    }
+}
@@ -0,0 +1,645 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package persistence;
+
+import model.InHouse;
+import model.Inventory;
+import model.InventorySnapshot;
+import model.InventoryListener;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of every change to the inventory, so a crash loses nothing and saving never has to rewrite the
+ * whole snapshot. The Journal is an InventoryListener: each change is encoded as a record and queued in memory, and
+ * the thread that made the change waits in afterChange() until its record is on disk.
+ *
+ * A single writer thread takes everything queued, writes it to the current segment file and forces it to disk, so
+ * changes made while one write is in progress share the next fsync (group commit). When the segments grow past the
+ * compaction threshold, a background thread folds them into a fresh snapshot and deletes them. A compaction that
+ * fails is logged at ERROR and reported to the next thread to wait in afterChange(), or by close(); the segments are
+ * kept, and the next compaction tries again.
+ *
+ * Every record is framed as: length, CRC-32, sequence number, type, payload. Records only ever store the full new
+ * value of a part or product (or its whole bill of materials, or its new stock after an adjustment), so replaying a
+ * record that the snapshot already reflects does no harm. Bills of materials are written as part ID and quantity
+ * pairs.
+ */
+public class Journal implements InventoryListener, Closeable {
+    private static final byte PUT_PART = 1;
+    private static final byte DELETE_PART = 2;
+    private static final byte PUT_PRODUCT = 3;
+    private static final byte DELETE_PRODUCT = 4;
+    private static final byte ASSOCIATED_PARTS = 5;
+    private static final byte PART_STOCK = 6;
+    private static final byte PRODUCT_STOCK = 7;
+
+    private static final byte IN_HOUSE = 0;
+    private static final byte OUTSOURCED = 1;
+
+    private static final int HEADER = 4 + 4 + 8 + 1;
+    private static final String SUFFIX = ".log";
+
+    /**
+     * The default journal size at which the segments are folded into a new snapshot.
+     */
+    public static final long DEFAULT_COMPACT_BYTES = 64L << 20;
+
+    private static final System.Logger LOG = System.getLogger(Journal.class.getName());
+
+    private final Path snapshotFile;
+    private final Path directory;
+    private final long compactBytes;
+
+    private final ReentrantLock bufferLock = new ReentrantLock();
+    private final Condition hasRecords = bufferLock.newCondition();
+    private final Condition durable = bufferLock.newCondition();
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+    private long lastSequence;
+    private long durableSequence;
+    private IOException failure;
+    private IOException compactionFailure;
+    private boolean closed;
+
+    private final Object ioLock = new Object();
+    private final Object compactLock = new Object();
+    private ByteBuffer spare = ByteBuffer.allocate(1 << 16);
+    private FileChannel segment;
+    private long segmentNumber;
+    private long journalBytes;
+
+    private final CRC32 crc = new CRC32();
+    private final ThreadLocal<long[]> appendedByThread = ThreadLocal.withInitial(() -> new long[1]);
+    private final ThreadLocal<boolean[]> droppedByThread = ThreadLocal.withInitial(() -> new boolean[1]);
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final Thread writer;
+
+    private Journal(Path snapshotFile, Path directory, long compactBytes, long lastSegment, long sequence)
+            throws IOException {
+        this.snapshotFile = snapshotFile;
+        this.directory = directory;
+        this.compactBytes = compactBytes;
+        this.lastSequence = sequence;
+        this.durableSequence = sequence;
+        openSegment(lastSegment + 1);
+
+        writer = new Thread(this::writeLoop, "inventory-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Recovers the inventory and opens the journal for new changes. The snapshot is loaded first, then every journal
+     * record written after it is replayed. A record cut short by a crash ends the replay and is trimmed off. The
+     * returned Journal still has to be registered with Inventory.addListener().
+     *
+     * @param snapshotFile the snapshot the journal is compacted into
+     * @param directory the directory holding the journal segments
+     * @param compactBytes the journal size at which a compaction starts
+     * @return the open journal
+     * @throws IOException if the snapshot or the journal can't be read
+     */
+    public static Journal open(Path snapshotFile, Path directory, long compactBytes) throws IOException {
+        Files.createDirectories(directory);
+        long sequence = Files.exists(snapshotFile) ? SnapshotFile.load(snapshotFile) : 0;
+
+        long lastSegment = 0;
+        for (Path path : segments(directory)) {
+            sequence = Math.max(sequence, replay(path, sequence));
+            lastSegment = Math.max(lastSegment, segmentNumber(path));
+        }
+        return new Journal(snapshotFile, directory, compactBytes, lastSegment, sequence);
+    }
+
+    /**
+     * @return the sequence number of the last record handed to the journal
+     */
+    public long lastSequence() {
+        bufferLock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            bufferLock.unlock();
+        }
+    }
+
+    @Override
+    public void partAdded(Part part) {
+        putPart(part);
+    }
+
+    @Override
+    public void partUpdated(Part oldPart, Part newPart) {
+        if (oldPart.getId() != newPart.getId())
+            delete(DELETE_PART, oldPart.getId());
+        putPart(newPart);
+    }
+
+    @Override
+    public void partDeleted(Part part) {
+        delete(DELETE_PART, part.getId());
+    }
+
+    @Override
+    public void productAdded(Product product) {
+        putProduct(product);
+    }
+
+    @Override
+    public void productUpdated(Product oldProduct, Product newProduct) {
+        if (oldProduct.getID() != newProduct.getID())
+            delete(DELETE_PRODUCT, oldProduct.getID());
+        putProduct(newProduct);
+    }
+
+    @Override
+    public void productDeleted(Product product) {
+        delete(DELETE_PRODUCT, product.getID());
+    }
+
+    @Override
+    public void associatedPartsChanged(Product product) {
+        long[] lines = product.getAssociatedPartLines();
+        bufferLock.lock();
+        try {
+            int start = begin(ASSOCIATED_PARTS, 8 + 8 * lines.length);
+            if (start < 0)
+                return;
+            pending.putInt(product.getID());
+            putLines(lines);
+            end(start);
+        } finally {
+            bufferLock.unlock();
+        }
+    }
+
+    @Override
+    public void partStockAdjusted(Part part, int stock) {
+        putStock(PART_STOCK, part.getId(), stock);
+    }
+
+    @Override
+    public void productStockAdjusted(Product product, int stock) {
+        putStock(PRODUCT_STOCK, product.getID(), stock);
+    }
+
+    /**
+     * Waits until every record this thread has queued is on disk. If a background compaction has failed since the
+     * last call, reports it once; the change itself is on disk by then.
+     *
+     * @throws IllegalStateException if the journal was closed and a change made on this thread since the last call
+     * was not recorded
+     * @throws UncheckedIOException if the journal can't be written, or a background compaction failed
+     */
+    @Override
+    public void afterChange() {
+        boolean[] dropped = droppedByThread.get();
+        if (dropped[0]) {
+            dropped[0] = false;
+            throw new IllegalStateException("Inventory journal is closed; the change was made but not recorded");
+        }
+        long sequence = appendedByThread.get()[0];
+        bufferLock.lock();
+        try {
+            while (durableSequence < sequence && failure == null)
+                durable.awaitUninterruptibly();
+            if (failure != null)
+                throw new UncheckedIOException("Inventory journal write failed", failure);
+            IOException compaction = takeCompactionFailure();
+            if (compaction != null)
+                throw new UncheckedIOException("Inventory journal compaction failed", compaction);
+        } finally {
+            bufferLock.unlock();
+        }
+    }
+
+    private void putPart(Part part) {
+        byte[] name = bytes(part.getName());
+        byte[] company = part instanceof Outsourced ? bytes(((Outsourced) part).getCompanyName()) : null;
+        bufferLock.lock();
+        try {
+            int start = begin(PUT_PART, 33 + name.length + (company == null ? 0 : 4 + company.length));
+            if (start < 0)
+                return;
+            pending.put(company == null ? IN_HOUSE : OUTSOURCED).putInt(part.getId());
+            pending.putInt(name.length).put(name);
+            pending.putDouble(part.getPrice()).putInt(part.getStock()).putInt(part.getMin()).putInt(part.getMax());
+            if (company == null)
+                pending.putInt(((InHouse) part).getMachineID());
+            else
+                pending.putInt(company.length).put(company);
+            end(start);
+        } finally {
+            bufferLock.unlock();
+        }
+    }
+
+    private void putProduct(Product product) {
+        byte[] name = bytes(product.getName());
+        long[] lines = product.getAssociatedPartLines();
+        bufferLock.lock();
+        try {
+            int start = begin(PUT_PRODUCT, 36 + name.length + 8 * lines.length);
+            if (start < 0)
+                return;
+            pending.putInt(product.getID()).putInt(name.length).put(name);
+            pending.putDouble(product.getPrice()).putInt(product.getStock()).putInt(product.getMin())
+                    .putInt(product.getMax());
+            putLines(lines);
+            end(start);
+        } finally {
+            bufferLock.unlock();
+        }
+    }
+
+    /**
+     * Writes a bill of materials into the pending buffer. Called with the buffer lock held.
+     */
+    private void putLines(long[] lines) {
+        pending.putInt(lines.length);
+        for (long line : lines)
+            pending.putInt(Product.partID(line)).putInt(Product.quantity(line));
+    }
+
+    private void putStock(byte type, int id, int stock) {
+        bufferLock.lock();
+        try {
+            int start = begin(type, 8);
+            if (start < 0)
+                return;
+            pending.putInt(id).putInt(stock);
+            end(start);
+        } finally {
+            bufferLock.unlock();
+        }
+    }
+
+    private void delete(byte type, int id) {
+        bufferLock.lock();
+        try {
+            int start = begin(type, 4);
+            if (start < 0)
+                return;
+            pending.putInt(id);
+            end(start);
+        } finally {
+            bufferLock.unlock();
+        }
+    }
+
+    /**
+     * Starts a record in the pending buffer. Called with the buffer lock held, from inside a Store observer, so once
+     * the journal is closed the record is dropped rather than thrown out of the change that was already made; the
+     * next afterChange() on this thread reports it.
+     *
+     * @return the position of the record in the buffer, or -1 if the journal is closed and the record was dropped
+     */
+    private int begin(byte type, int payloadBytes) {
+        if (closed) {
+            LOG.log(Level.WARNING, "Inventory journal is closed; change not recorded");
+            droppedByThread.get()[0] = true;
+            return -1;
+        }
+        if (pending.remaining() < HEADER + payloadBytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2,
+                    pending.position() + HEADER + payloadBytes));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        int start = pending.position();
+        pending.putInt(0).putInt(0).putLong(++lastSequence).put(type);
+        return start;
+    }
+
+    /**
+     * Fills in the length and checksum of the record started at start, and wakes the writer.
+     */
+    private void end(int start) {
+        int length = pending.position() - start - 4;
+        crc.reset();
+        crc.update(pending.array(), start + 8, length - 4);
+        pending.putInt(start, length).putInt(start + 4, (int) crc.getValue());
+        appendedByThread.get()[0] = lastSequence;
+        hasRecords.signal();
+    }
+
+    private void writeLoop() {
+        while (true) {
+            bufferLock.lock();
+            try {
+                while (pending.position() == 0 && !closed)
+                    hasRecords.awaitUninterruptibly();
+                if (pending.position() == 0)
+                    return;
+            } finally {
+                bufferLock.unlock();
+            }
+
+            boolean full;
+            try {
+                synchronized (ioLock) {
+                    writePending();
+                    full = journalBytes >= compactBytes;
+                }
+            } catch (IOException e) {
+                bufferLock.lock();
+                try {
+                    failure = e;
+                    durable.signalAll();
+                } finally {
+                    bufferLock.unlock();
+                }
+                return;
+            }
+
+            if (full && compacting.compareAndSet(false, true)) {
+                Thread compactor = new Thread(() -> {
+                    try {
+                        compact();
+                    } catch (IOException e) {
+                        LOG.log(Level.ERROR, "Inventory journal compaction failed", e);
+                        bufferLock.lock();
+                        try {
+                            compactionFailure = e;
+                        } finally {
+                            bufferLock.unlock();
+                        }
+                    } finally {
+                        compacting.set(false);
+                    }
+                }, "inventory-compactor");
+                compactor.setDaemon(true);
+                compactor.start();
+            }
+        }
+    }
+
+    /**
+     * Writes every queued record to the current segment and forces it to disk. Called with the I/O lock held, so
+     * records reach the file in sequence order.
+     */
+    private void writePending() throws IOException {
+        ByteBuffer batch;
+        long upTo;
+        bufferLock.lock();
+        try {
+            batch = pending;
+            pending = spare;
+            upTo = lastSequence;
+        } finally {
+            bufferLock.unlock();
+        }
+
+        batch.flip();
+        if (batch.hasRemaining()) {
+            journalBytes += batch.remaining();
+            while (batch.hasRemaining())
+                segment.write(batch);
+            segment.force(false);
+        }
+        batch.clear();
+        spare = batch;
+
+        bufferLock.lock();
+        try {
+            durableSequence = upTo;
+            durable.signalAll();
+        } finally {
+            bufferLock.unlock();
+        }
+    }
+
+    /**
+     * Folds the journal into a new snapshot. New records go to a fresh segment from the moment the compaction
+     * starts; once the snapshot is safely written, the older segments are deleted. A compaction started while another
+     * is running waits for it, since both write the same snapshot file.
+     *
+     * @throws IOException if the snapshot can't be written
+     */
+    public void compact() throws IOException {
+        synchronized (compactLock) {
+            compactNow();
+        }
+    }
+
+    private void compactNow() throws IOException {
+        long upTo;
+        long keepFrom;
+        synchronized (ioLock) {
+            writePending();
+            upTo = durableSequence;
+            segment.close();
+            openSegment(segmentNumber + 1);
+            keepFrom = segmentNumber;
+        }
+
+        // every record up to upTo was applied before it was queued, so a snapshot opened now includes it
+        try (InventorySnapshot snapshot = Inventory.openSnapshot()) {
+            SnapshotFile.write(snapshotFile, snapshot.getParts(), snapshot.getProducts(), upTo);
+        }
+
+        for (Path path : segments(directory)) {
+            if (segmentNumber(path) < keepFrom)
+                Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Writes out anything still queued, folds the journal into the snapshot and stops the writer thread.
+     *
+     * @throws IOException if the final snapshot can't be written, or a background compaction failed and was not yet
+     * reported
+     */
+    @Override
+    public void close() throws IOException {
+        compact();
+        IOException compaction;
+        bufferLock.lock();
+        try {
+            closed = true;
+            hasRecords.signal();
+            compaction = takeCompactionFailure();
+        } finally {
+            bufferLock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (ioLock) {
+            segment.close();
+        }
+        if (compaction != null)
+            throw compaction;
+    }
+
+    /**
+     * Returns the last background compaction failure not yet reported, and forgets it. Called with the buffer lock
+     * held.
+     */
+    private IOException takeCompactionFailure() {
+        IOException e = compactionFailure;
+        compactionFailure = null;
+        return e;
+    }
+
+    private void openSegment(long number) throws IOException {
+        segmentNumber = number;
+        segment = FileChannel.open(directory.resolve(String.format("%016d", number) + SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        journalBytes = 0;
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path path : stream)
+                paths.add(path);
+        }
+        paths.sort(null);
+        return paths;
+    }
+
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    private static byte[] bytes(String s) {
+        return (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteBuffer in) {
+        byte[] b = new byte[in.getInt()];
+        in.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Applies the records of one segment that come after the given sequence number.
+     *
+     * @return the sequence number of the last intact record, or after if there is none
+     */
+    private static long replay(Path path, long after) throws IOException {
+        long last = after;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer in = ByteBuffer.allocate((int) channel.size());
+            while (in.hasRemaining() && channel.read(in) >= 0) {
+            }
+            in.flip();
+
+            CRC32 check = new CRC32();
+            while (in.remaining() >= 4) {
+                int start = in.position();
+                int length = in.getInt();
+                if (length < HEADER - 4 || length > in.remaining()) {
+                    channel.truncate(start);
+                    break;
+                }
+                int expected = in.getInt();
+                check.reset();
+                check.update(in.array(), in.position(), length - 4);
+                if ((int) check.getValue() != expected) {
+                    channel.truncate(start);
+                    break;
+                }
+                long sequence = in.getLong();
+                byte type = in.get();
+                int next = start + 4 + length;
+                if (sequence > after) {
+                    apply(type, in);
+                    last = sequence;
+                }
+                in.position(next);
+            }
+        }
+        return last;
+    }
+
+    private static void apply(byte type, ByteBuffer in) {
+        if (type == PUT_PART) {
+            byte kind = in.get();
+            int id = in.getInt();
+            String name = string(in);
+            double price = in.getDouble();
+            int stock = in.getInt();
+            int min = in.getInt();
+            int max = in.getInt();
+            Part part = kind == OUTSOURCED
+                    ? new Outsourced(id, name, price, stock, min, max, string(in))
+                    : new InHouse(id, name, price, stock, min, max, in.getInt());
+            if (!Inventory.modifyPart(part))
+                Inventory.addPart(part);
+        } else if (type == DELETE_PART) {
+            Part part = Inventory.lookupPart(in.getInt());
+            if (part != null)
+                Inventory.deletePart(part);
+        } else if (type == PUT_PRODUCT) {
+            int id = in.getInt();
+            Product product = new Product(id, string(in), in.getDouble(), in.getInt(), in.getInt(), in.getInt());
+            readParts(in, product);
+            if (!Inventory.updateProductById(id, product))
+                Inventory.addProduct(product);
+        } else if (type == DELETE_PRODUCT) {
+            Product product = Inventory.lookupProduct(in.getInt());
+            if (product != null)
+                Inventory.deleteProduct(product);
+        } else if (type == PART_STOCK) {
+            Part part = Inventory.lookupPart(in.getInt());
+            if (part != null)
+                Inventory.adjustPartStock(part.getId(), in.getInt() - part.getStock());
+        } else if (type == PRODUCT_STOCK) {
+            Product product = Inventory.lookupProduct(in.getInt());
+            if (product != null)
+                Inventory.adjustProductStock(product.getID(), in.getInt() - product.getStock());
+        } else if (type == ASSOCIATED_PARTS) {
+            Product product = Inventory.lookupProduct(in.getInt());
+            if (product != null)
+                readParts(in, product);
+        }
+    }
+
+    /**
+     * Reads a bill of materials into a product, leaving out parts that are not in the inventory.
+     */
+    private static void readParts(ByteBuffer in, Product product) {
+        int count = in.getInt();
+        int[] partIDs = new int[count];
+        int[] quantities = new int[count];
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int partID = in.getInt();
+            int quantity = in.getInt();
+            if (Inventory.lookupPart(partID) != null) {
+                partIDs[kept] = partID;
+                quantities[kept++] = quantity;
+            }
+        }
+        product.setAssociatedParts(Arrays.copyOf(partIDs, kept), Arrays.copyOf(quantities, kept));
+    }
+}
@@ -0,0 +1,233 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package persistence;
+
+import model.InHouse;
+import model.Inventory;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves the whole inventory to a binary file and loads it back. The file is laid out as:
+ *
+ * header: magic, format version, journal sequence, string count, part count, product count
+ * string table: every distinct name and company name, each once, as a length and UTF-8 bytes
+ * parts: kind, ID, name reference, price, stock, min, max, and the machine ID or company name reference
+ * products: ID, name reference, price, stock, min, max, associated part count, then each associated part ID and its
+ *           quantity
+ *
+ * Names are written as references into the string table, so repeated names are stored once and share a single
+ * String after loading. The file is written through a FileChannel into a temporary file that replaces the old file
+ * only once it is complete, and it is read back through a memory-mapped buffer.
+ *
+ * The journal sequence is the last Journal record already reflected in the snapshot; recovery replays only the
+ * records after it.
+ */
+public class SnapshotFile {
+    private static final int MAGIC = 0x494E5653;
+    private static final int VERSION = 1;
+    private static final byte IN_HOUSE = 0;
+    private static final byte OUTSOURCED = 1;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Writes the given parts and products to a snapshot file.
+     *
+     * @param file the file to write
+     * @param parts the parts to save
+     * @param products the products to save
+     * @param journalSequence the last journal record reflected in the parts and products
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Path file, List<Part> parts, List<Product> products, long journalSequence)
+            throws IOException {
+        Map<String, Integer> stringIDs = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (Part part : parts) {
+            intern(part.getName(), stringIDs, strings);
+            if (part instanceof Outsourced)
+                intern(((Outsourced) part).getCompanyName(), stringIDs, strings);
+        }
+        for (Product product : products)
+            intern(product.getName(), stringIDs, strings);
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.room(28);
+            out.buffer.putInt(MAGIC).putInt(VERSION).putLong(journalSequence).putInt(strings.size())
+                    .putInt(parts.size()).putInt(products.size());
+
+            for (String s : strings)
+                out.putBytes(s.getBytes(StandardCharsets.UTF_8));
+
+            for (Part part : parts) {
+                out.room(33);
+                ByteBuffer b = out.buffer;
+                b.put(part instanceof Outsourced ? OUTSOURCED : IN_HOUSE);
+                b.putInt(part.getId()).putInt(stringIDs.get(text(part.getName()))).putDouble(part.getPrice())
+                        .putInt(part.getStock()).putInt(part.getMin()).putInt(part.getMax());
+                if (part instanceof Outsourced)
+                    b.putInt(stringIDs.get(text(((Outsourced) part).getCompanyName())));
+                else
+                    b.putInt(((InHouse) part).getMachineID());
+            }
+
+            for (Product product : products) {
+                long[] lines = product.getAssociatedPartLines();
+                out.room(32);
+                out.buffer.putInt(product.getID()).putInt(stringIDs.get(text(product.getName())))
+                        .putDouble(product.getPrice()).putInt(product.getStock()).putInt(product.getMin())
+                        .putInt(product.getMax()).putInt(lines.length);
+                for (long line : lines) {
+                    out.room(8);
+                    out.buffer.putInt(Product.partID(line)).putInt(Product.quantity(line));
+                }
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a snapshot file into the inventory. Parts are added first, as one batch, so that products can check their
+     * associated parts by ID; products are then added as a second batch.
+     *
+     * @param file the file to read
+     * @return the journal sequence the snapshot was written at
+     * @throws IOException if the file can't be read or is not a snapshot file
+     */
+    public static long load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < 28 || in.getInt() != MAGIC)
+                throw new IOException(file + " is not an inventory snapshot");
+            int version = in.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported snapshot version " + version);
+            long journalSequence = in.getLong();
+
+            String[] strings = new String[in.getInt()];
+            int partCount = in.getInt();
+            int productCount = in.getInt();
+
+            byte[] bytes = new byte[256];
+            for (int i = 0; i < strings.length; i++) {
+                int length = in.getInt();
+                if (length > bytes.length)
+                    bytes = new byte[Math.max(length, bytes.length * 2)];
+                in.get(bytes, 0, length);
+                strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+
+            List<Part> parts = new ArrayList<>(partCount);
+            for (int i = 0; i < partCount; i++) {
+                byte kind = in.get();
+                int id = in.getInt();
+                String name = strings[in.getInt()];
+                double price = in.getDouble();
+                int stock = in.getInt();
+                int min = in.getInt();
+                int max = in.getInt();
+                int last = in.getInt();
+                if (kind == OUTSOURCED)
+                    parts.add(new Outsourced(id, name, price, stock, min, max, strings[last]));
+                else
+                    parts.add(new InHouse(id, name, price, stock, min, max, last));
+            }
+            Inventory.addParts(parts);
+
+            List<Product> products = new ArrayList<>(productCount);
+            for (int i = 0; i < productCount; i++) {
+                Product product = new Product(in.getInt(), strings[in.getInt()], in.getDouble(), in.getInt(),
+                        in.getInt(), in.getInt());
+                int lines = in.getInt();
+                int[] partIDs = new int[lines];
+                int[] quantities = new int[lines];
+                int kept = 0;
+                for (int j = 0; j < lines; j++) {
+                    int partID = in.getInt();
+                    int quantity = in.getInt();
+                    if (Inventory.lookupPart(partID) != null) {
+                        partIDs[kept] = partID;
+                        quantities[kept++] = quantity;
+                    }
+                }
+                product.setAssociatedParts(Arrays.copyOf(partIDs, kept), Arrays.copyOf(quantities, kept));
+                products.add(product);
+            }
+            Inventory.addProducts(products);
+            return journalSequence;
+        }
+    }
+
+    private static String text(String s) {
+        return s == null ? "" : s;
+    }
+
+    private static void intern(String s, Map<String, Integer> ids, List<String> strings) {
+        s = text(s);
+        if (!ids.containsKey(s)) {
+            ids.put(s, strings.size());
+            strings.add(s);
+        }
+    }
+
+    /**
+     * A direct buffer that is written to the channel whenever it runs out of room.
+     */
+    private static final class Output {
+        final FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void room(int bytes) throws IOException {
+            if (buffer.remaining() < bytes)
+                flush();
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            room(4);
+            buffer.putInt(bytes.length);
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining())
+                    flush();
+                int n = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, n);
+                offset += n;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BuildTransactionTest {
+
+    private static Part part(int id, int stock) {
+        return new InHouse(id, "Part " + id, 1.0, stock, 0, 1_000_000, 0);
+    }
+
+    private static Product product(int id, int stock, Part[] parts, int[] quantities) {
+        Product product = new Product(id, "Product " + id, 10.0, stock, 0, 1_000_000);
+        int[] partIDs = new int[parts.length];
+        for (int i = 0; i < parts.length; i++)
+            partIDs[i] = parts[i].getId();
+        product.setAssociatedParts(partIDs, quantities);
+        return product;
+    }
+
+    /**
+     * Runs a build on another thread and returns once it is waiting to read the stamp the test holds.
+     */
+    private static Future<Boolean> runBlocked(ExecutorService executor, BuildTransaction build) throws Exception {
+        AtomicReference<Thread> runner = new AtomicReference<>();
+        Future<Boolean> result = executor.submit(() -> {
+            runner.set(Thread.currentThread());
+            return build.run();
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!waitingOnStamp(runner.get())) {
+            assertTrue(System.nanoTime() < deadline, "build never reached the held stamp");
+            Thread.sleep(1);
+        }
+        return result;
+    }
+
+    private static boolean waitingOnStamp(Thread thread) {
+        if (thread == null)
+            return false;
+        for (StackTraceElement frame : thread.getStackTrace()) {
+            if (frame.getClassName().equals(StockStamp.class.getName()) && frame.getMethodName().equals("read"))
+                return true;
+        }
+        return false;
+    }
+
+    @Test
+    void buildTakesPartsAndAddsUnits() {
+        Part wheel = part(1, 10);
+        Part chain = part(2, 5);
+        Product bike = product(1, 0, new Part[] {wheel, chain}, new int[] {2, 1});
+        IntMap<Part> parts = new IntMap<>();
+        parts.put(1, wheel);
+        parts.put(2, chain);
+
+        BuildTransaction build = BuildTransaction.plan(new Product[] {bike, bike}, new int[] {2, 1}, parts::get);
+        assertNotNull(build);
+        assertEquals(1, build.productCount());
+        assertEquals(3, build.productUnits(0));
+        assertTrue(build.run());
+        assertEquals(4, wheel.getStock());
+        assertEquals(2, chain.getStock());
+        assertEquals(3, bike.getStock());
+    }
+
+    @Test
+    void planRefusesMissingPartsAndBadUnitCounts() {
+        Part wheel = part(1, 10);
+        Product bike = product(1, 0, new Part[] {wheel}, new int[] {2});
+        assertNull(BuildTransaction.plan(new Product[] {bike}, new int[] {1}, id -> null));
+        assertNull(BuildTransaction.plan(new Product[] {bike}, new int[] {0}, id -> wheel));
+        assertNull(BuildTransaction.plan(new Product[] {bike}, new int[] {Integer.MAX_VALUE}, id -> wheel));
+    }
+
+    @Test
+    void shortfallChangesNothing() {
+        Part wheel = part(1, 10);
+        Part chain = part(2, 1);
+        Product bike = product(1, 0, new Part[] {wheel, chain}, new int[] {2, 1});
+        IntMap<Part> parts = new IntMap<>();
+        parts.put(1, wheel);
+        parts.put(2, chain);
+        long shortfalls = BuildTransaction.stats().getShortfalls();
+
+        assertFalse(BuildTransaction.plan(new Product[] {bike}, new int[] {2}, parts::get).run());
+        assertEquals(10, wheel.getStock());
+        assertEquals(1, chain.getStock());
+        assertEquals(0, bike.getStock());
+        assertEquals(shortfalls + 1, BuildTransaction.stats().getShortfalls());
+    }
+
+    @Test
+    void retriesWhenAPartChangesAfterItWasRead() throws Exception {
+        Part wheel = part(1, 10);
+        Part chain = part(2, 5);
+        Product bike = product(1, 0, new Part[] {wheel, chain}, new int[] {2, 1});
+        IntMap<Part> parts = new IntMap<>();
+        parts.put(1, wheel);
+        parts.put(2, chain);
+        BuildTransaction build = BuildTransaction.plan(new Product[] {bike}, new int[] {1}, parts::get);
+        long retries = BuildTransaction.stats().getRetries();
+
+        // the build reads the wheel, then waits on the chain while the wheel's stock moves on
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            long chainStamp = chain.stockStamp();
+            assertTrue(chain.lockStock(chainStamp));
+            Future<Boolean> result = runBlocked(executor, build);
+            wheel.addStock(3);
+            chain.unlockStock(chainStamp);
+
+            assertTrue(result.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(retries + 1, BuildTransaction.stats().getRetries());
+        assertEquals(11, wheel.getStock());
+        assertEquals(4, chain.getStock());
+        assertEquals(1, bike.getStock());
+    }
+
+    @Test
+    void givesBackPartsTakenWhenAProductChanged() throws Exception {
+        Part wheel = part(1, 10);
+        Product bike = product(1, 0, new Part[] {wheel}, new int[] {2});
+        Product trike = product(2, 0, new Part[] {wheel}, new int[] {3});
+        IntMap<Part> parts = new IntMap<>();
+        parts.put(1, wheel);
+        BuildTransaction build = BuildTransaction.plan(new Product[] {bike, trike}, new int[] {1, 1}, parts::get);
+        long retries = BuildTransaction.stats().getRetries();
+
+        // the wheel is taken, then taking the bike fails and the wheel has to be given back before the retry
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            long trikeStamp = trike.stockStamp();
+            assertTrue(trike.lockStock(trikeStamp));
+            Future<Boolean> result = runBlocked(executor, build);
+            bike.addStock(4);
+            trike.unlockStock(trikeStamp);
+
+            assertTrue(result.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(retries + 1, BuildTransaction.stats().getRetries());
+        assertEquals(5, wheel.getStock());
+        assertEquals(5, bike.getStock());
+        assertEquals(1, trike.getStock());
+
+        // every stamp was given back: a plain adjustment does not wait
+        assertEquals(5, wheel.addStock(1));
+        assertEquals(5, bike.addStock(1));
+    }
+
+    @Test
+    void concurrentBuildsNeverOversell() throws Exception {
+        Part wheel = part(101, 1_000);
+        Part chain = part(102, 600);
+        Inventory.addPart(wheel);
+        Inventory.addPart(chain);
+        Inventory.addProduct(product(101, 0, new Part[] {wheel, chain}, new int[] {2, 1}));
+        Inventory.addProduct(product(102, 0, new Part[] {wheel}, new int[] {3}));
+
+        int threads = 8;
+        AtomicInteger bikes = new AtomicInteger();
+        AtomicInteger trikes = new AtomicInteger();
+        AtomicInteger received = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 500; i++) {
+                        if (thread == 0) {
+                            Inventory.adjustPartStock(101, 1);
+                            received.incrementAndGet();
+                        } else if (Inventory.buildProducts(new int[] {101, 102}, new int[] {1, 1})) {
+                            bikes.incrementAndGet();
+                            trikes.incrementAndGet();
+                        } else if (Inventory.buildProduct(101, 1)) {
+                            bikes.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures)
+                future.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Part wheelNow = Inventory.lookupPart(101);
+        Part chainNow = Inventory.lookupPart(102);
+        assertEquals(1_000 + received.get() - 2 * bikes.get() - 3 * trikes.get(), wheelNow.getStock());
+        assertEquals(600 - bikes.get(), chainNow.getStock());
+        assertTrue(wheelNow.getStock() >= 0);
+        assertTrue(chainNow.getStock() >= 0);
+        assertEquals(bikes.get(), Inventory.lookupProduct(101).getStock());
+        assertEquals(trikes.get(), Inventory.lookupProduct(102).getStock());
+    }
+}
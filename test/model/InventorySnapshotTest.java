@@ -0,0 +1,153 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Inventory is static, so each test works in an ID range of its own.
+ */
+class InventorySnapshotTest {
+
+    private static Part part(int id, String name, int stock) {
+        return new InHouse(id, name, 1.0, stock, 0, 1_000_000, 0);
+    }
+
+    @Test
+    void showsPartsAsTheyWereWhenOpened() {
+        Inventory.addPart(part(1, "Wheel", 10));
+        Inventory.addPart(part(2, "Chain", 5));
+        Inventory.addPart(part(3, "Pedal", 7));
+
+        try (InventorySnapshot snapshot = Inventory.openSnapshot()) {
+            Inventory.adjustPartStock(1, -4);
+            Inventory.modifyPart(part(2, "Chain, heavy", 8));
+            Inventory.deletePart(Inventory.lookupPart(3));
+            Inventory.addPart(part(4, "Seat", 1));
+
+            assertEquals(10, snapshot.lookupPart(1).getStock());
+            assertEquals("Chain", snapshot.lookupPart(2).getName());
+            assertEquals(5, snapshot.lookupPart(2).getStock());
+            assertNotNull(snapshot.lookupPart(3));
+            assertNull(snapshot.lookupPart(4));
+
+            try (InventorySnapshot later = Inventory.openSnapshot()) {
+                assertEquals(6, later.lookupPart(1).getStock());
+                assertEquals("Chain, heavy", later.lookupPart(2).getName());
+                assertNull(later.lookupPart(3));
+                assertEquals(1, later.lookupPart(4).getStock());
+            }
+            assertEquals(10, snapshot.lookupPart(1).getStock());
+        }
+    }
+
+    @Test
+    void keepsProductsAndTheirBillsOfMaterials() {
+        Inventory.addPart(part(11, "Wheel", 10));
+        Inventory.addPart(part(12, "Chain", 10));
+        Product bike = new Product(11, "Bike", 100.0, 0, 0, 100);
+        bike.setAssociatedParts(new int[] {11}, new int[] {2});
+        Inventory.addProduct(bike);
+
+        try (InventorySnapshot snapshot = Inventory.openSnapshot()) {
+            Inventory.lookupProduct(11).setAssociatedParts(new int[] {11, 12}, new int[] {2, 1});
+            Inventory.buildProduct(11, 3);
+
+            Product then = snapshot.lookupProduct(11);
+            assertEquals(0, then.getStock());
+            assertArrayEquals(new long[] {bike.getAssociatedPartLines()[0]}, then.getAssociatedPartLines());
+            assertEquals(10, snapshot.lookupPart(11).getStock());
+            assertEquals(10, snapshot.lookupPart(12).getStock());
+        }
+        assertEquals(3, Inventory.lookupProduct(11).getStock());
+        assertEquals(4, Inventory.lookupPart(11).getStock());
+        assertEquals(7, Inventory.lookupPart(12).getStock());
+    }
+
+    @Test
+    void returnsCopiesAndRefusesReadsOnceClosed() {
+        Inventory.addPart(part(21, "Bell", 3));
+        InventorySnapshot snapshot = Inventory.openSnapshot();
+        int open = Inventory.getOpenSnapshotCount();
+        snapshot.lookupPart(21).setStock(99);
+        assertEquals(3, snapshot.lookupPart(21).getStock());
+        assertEquals(3, Inventory.lookupPart(21).getStock());
+
+        snapshot.close();
+        snapshot.close();
+        assertEquals(open - 1, Inventory.getOpenSnapshotCount());
+        assertThrows(IllegalStateException.class, () -> snapshot.lookupPart(21));
+        assertThrows(IllegalStateException.class, snapshot::getParts);
+    }
+
+    @Test
+    void seesWholeBuildsWhileWritesContinue() throws Exception {
+        // every build moves 2 wheels into one bike, so wheels + 2 * bikes never changes
+        int total = 200_000;
+        Inventory.addPart(part(31, "Rim", total));
+        Inventory.addPart(part(32, "Spare 0", 0));
+        Product bike = new Product(31, "Racer", 100.0, 0, 0, total);
+        bike.setAssociatedParts(new int[] {31}, new int[] {2});
+        Inventory.addProduct(bike);
+
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            writers.add(executor.submit(() -> {
+                while (!done.get() && Inventory.buildProduct(31, 1)) {
+                }
+                return null;
+            }));
+            writers.add(executor.submit(() -> {
+                for (int i = 1; !done.get(); i++)
+                    Inventory.modifyPart(part(32, "Spare " + i, i));
+                return null;
+            }));
+
+            Future<Integer> reader = executor.submit(() -> {
+                int checked = 0;
+                for (long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500); System.nanoTime() < end; ) {
+                    try (InventorySnapshot snapshot = Inventory.openSnapshot()) {
+                        int wheels = snapshot.lookupPart(31).getStock();
+                        Part spare = snapshot.lookupPart(32);
+                        Thread.yield();
+                        assertEquals(total, wheels + 2 * snapshot.lookupProduct(31).getStock());
+                        assertEquals(wheels, snapshot.lookupPart(31).getStock());
+                        assertEquals("Spare " + spare.getStock(), spare.getName());
+                        assertEquals(spare.getStock(), snapshot.lookupPart(32).getStock());
+                        checked++;
+                    }
+                }
+                return checked;
+            });
+
+            assertTrue(reader.get(30, TimeUnit.SECONDS) > 0);
+            done.set(true);
+            for (Future<?> writer : writers)
+                writer.get(30, TimeUnit.SECONDS);
+        } finally {
+            done.set(true);
+            executor.shutdownNow();
+        }
+        assertEquals(total, Inventory.lookupPart(31).getStock() + 2 * Inventory.lookupProduct(31).getStock());
+    }
+}
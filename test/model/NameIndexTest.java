@@ -0,0 +1,122 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NameIndexTest {
+    private static final String[] WORDS = { "Wheel", "wheelbase", "Chain", "chainring", "Pedal", "Seat", "Spoke",
+            "Brake", "Bell", "Rim", "Tube", "Tire", "Gear", "Cog", "Äxle" };
+    private static final String[] QUERIES = { "", "e", "EL", "whe", "wheel", "HEELB", "chain", "ain", "in", "ring",
+            "spoke 1", "xyz", "äx", "ÄXLE", "e 1", "l ", "ke 12" };
+
+    private final Random random = new Random(559078);
+
+    private static int[] linearScan(Map<Integer, String> names, String query) {
+        String lowerQuery = query.toLowerCase();
+        return names.entrySet().stream()
+                .filter(e -> e.getValue() != null && e.getValue().toLowerCase().contains(lowerQuery))
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+    }
+
+    private String randomName() {
+        return WORDS[random.nextInt(WORDS.length)] + " " + random.nextInt(200);
+    }
+
+    private void assertMatchesScan(NameIndex index, Map<Integer, String> names) {
+        assertEquals(names.size(), index.size());
+        for (String query : QUERIES) {
+            assertArrayEquals(linearScan(names, query), index.search(query), query);
+            assertTrue(index.lastCandidateCount() <= names.size(), query);
+        }
+    }
+
+    @Test
+    void searchMatchesLinearScan() {
+        NameIndex index = new NameIndex();
+        Map<Integer, String> names = new TreeMap<>();
+        for (int id = 0; id < 2_000; id++) {
+            String name = randomName();
+            names.put(id, name);
+            index.add(id, name);
+        }
+        assertMatchesScan(index, names);
+    }
+
+    @Test
+    void searchMatchesLinearScanAfterRenamesAndRemovals() {
+        NameIndex index = new NameIndex();
+        Map<Integer, String> names = new TreeMap<>();
+        for (int id = 0; id < 1_000; id++) {
+            String name = randomName();
+            names.put(id, name);
+            index.addLater(id, name);
+        }
+        for (int i = 0; i < 2_000; i++) {
+            int id = random.nextInt(1_200);
+            if (random.nextInt(4) == 0) {
+                names.remove(id);
+                index.remove(id);
+            } else {
+                String name = randomName();
+                names.put(id, name);
+                index.add(id, name);
+            }
+        }
+        assertMatchesScan(index, names);
+    }
+
+    @Test
+    void refineMatchesFreshSearch() {
+        NameIndex index = new NameIndex();
+        Map<Integer, String> names = new TreeMap<>();
+        for (int id = 0; id < 2_000; id++) {
+            String name = randomName();
+            names.put(id, name);
+            index.add(id, name);
+        }
+        String[][] narrowings = { { "e", "ee", "whee", "wheel", "wheelb" }, { "ch", "cha", "chain", "chainr" },
+                { "s", "sp", "spo", "spoke", "spoke 1", "spoke 19" }, { "r", "ri", "rim" } };
+        for (String[] steps : narrowings) {
+            int[] ids = index.search(steps[0]);
+            for (int i = 1; i < steps.length; i++) {
+                ids = index.refine(ids, steps[i]);
+                int[] sorted = ids.clone();
+                Arrays.sort(sorted);
+                assertArrayEquals(linearScan(names, steps[i]), sorted, steps[i]);
+            }
+        }
+    }
+
+    @Test
+    void refineDropsRemovedIDs() {
+        NameIndex index = new NameIndex();
+        index.add(1, "Wheel");
+        index.add(2, "Wheelbase");
+        int[] ids = index.search("whe");
+        index.remove(2);
+        assertArrayEquals(new int[] {1}, index.refine(ids, "wheel"));
+    }
+
+    @Test
+    void shortQueryChecksEveryName() {
+        NameIndex index = new NameIndex();
+        for (int id = 0; id < 50; id++)
+            index.add(id, randomName());
+        index.search("e");
+        assertEquals(50, index.lastCandidateCount());
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package model;
+
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StoreTest {
+
+    /**
+     * Records what the observer is told, as "added 1", "replaced 1 2" and "removed 2".
+     */
+    private final List<String> told = new ArrayList<>();
+
+    private final Store<Part> store = new Store<>(Part::getId, Part::getName, new Store.Observer<Part>() {
+        @Override
+        public void added(Part part) {
+            told.add("added " + part.getId());
+        }
+
+        @Override
+        public void changing(Part part) { }
+
+        @Override
+        public void replaced(Part oldPart, Part newPart) {
+            told.add("replaced " + oldPart.getId() + " " + newPart.getId());
+        }
+
+        @Override
+        public void removed(Part part) {
+            told.add("removed " + part.getId());
+        }
+
+        @Override
+        public void changed(Part part) { }
+    });
+
+    private static Part part(int id, String name) {
+        return new InHouse(id, name, 1.0, 5, 1, 10, 0);
+    }
+
+    /**
+     * Checks that the ID index, the positions and the view all agree with the items in Store order.
+     */
+    private void assertConsistent() {
+        List<Part> items = store.snapshot();
+        assertEquals(items.size(), store.size());
+        for (int i = 0; i < items.size(); i++) {
+            Part part = items.get(i);
+            assertSame(part, store.getAt(i));
+            assertSame(part, store.get(part.getId()));
+            assertEquals(i, store.indexOfID(part.getId()));
+            assertEquals(i, store.indexOf(part));
+        }
+        assertEquals(items, new ArrayList<>(store.view()));
+    }
+
+    @Test
+    void addKeepsIndexesAndView() {
+        store.add(part(1, "Wheel"));
+        store.add(part(2, "Chain"));
+        store.add(part(3, "Pedal"));
+        assertConsistent();
+        assertEquals(Arrays.asList("added 1", "added 2", "added 3"), told);
+    }
+
+    @Test
+    void addRejectsIDInUse() {
+        store.add(part(1, "Wheel"));
+        assertThrows(IllegalArgumentException.class, () -> store.add(part(1, "Spoke")));
+        assertEquals("Wheel", store.get(1).getName());
+        assertEquals(1, store.size());
+        assertConsistent();
+    }
+
+    @Test
+    void addAllRejectsWholeBatchOnRepeatedID() {
+        store.add(part(1, "Wheel"));
+        assertThrows(IllegalArgumentException.class,
+                () -> store.addAll(Arrays.asList(part(2, "Chain"), part(3, "Pedal"), part(2, "Seat"))));
+        assertEquals(1, store.size());
+        assertNull(store.get(3));
+        assertConsistent();
+    }
+
+    @Test
+    void replaceWithNewIDMovesIndexEntry() {
+        store.add(part(1, "Wheel"));
+        store.add(part(2, "Chain"));
+        assertTrue(store.replace(1, part(7, "Rim")));
+        assertNull(store.get(1));
+        assertEquals(-1, store.indexOfID(1));
+        assertEquals(0, store.indexOfID(7));
+        assertEquals(0, store.searchIDs("wheel").length);
+        assertTrue(Arrays.equals(new int[] {7}, store.searchIDs("rim")));
+        assertConsistent();
+        assertEquals("replaced 1 7", told.get(told.size() - 1));
+    }
+
+    @Test
+    void replaceMissingIDChangesNothing() {
+        store.add(part(1, "Wheel"));
+        assertFalse(store.replace(9, part(9, "Rim")));
+        assertEquals(1, store.size());
+        assertConsistent();
+    }
+
+    @Test
+    void replaceAndSetRejectIDHeldByAnotherItem() {
+        store.add(part(1, "Wheel"));
+        store.add(part(2, "Chain"));
+        int toldBefore = told.size();
+        assertThrows(IllegalArgumentException.class, () -> store.replace(1, part(2, "Rim")));
+        assertThrows(IllegalArgumentException.class, () -> store.set(0, part(2, "Rim")));
+        assertEquals("Wheel", store.get(1).getName());
+        assertEquals("Chain", store.get(2).getName());
+        assertEquals(toldBefore, told.size());
+        assertConsistent();
+    }
+
+    @Test
+    void setKeepingIDReplacesInPlace() {
+        store.add(part(1, "Wheel"));
+        store.add(part(2, "Chain"));
+        Part rim = part(2, "Rim");
+        store.set(1, rim);
+        assertSame(rim, store.get(2));
+        assertConsistent();
+    }
+
+    @Test
+    void removeShiftsLaterPositions() {
+        for (int id = 1; id <= 5; id++)
+            store.add(part(id, "Part " + id));
+        assertTrue(store.remove(store.get(2)));
+        assertFalse(store.remove(part(3, "Part 3")));
+        assertEquals(4, store.size());
+        assertEquals(-1, store.indexOfID(2));
+        assertEquals(1, store.indexOfID(3));
+        assertConsistent();
+        assertEquals("removed 2", told.get(told.size() - 1));
+    }
+
+    @Test
+    void viewShowsQueuedChangesOnlyOnceRefreshed() {
+        Queue<Runnable> refreshes = new ArrayDeque<>();
+        store.setViewExecutor(refreshes::add);
+        ObservableList<Part> view = store.view();
+
+        store.add(part(1, "Wheel"));
+        store.add(part(2, "Chain"));
+        store.add(part(3, "Pedal"));
+        while (!refreshes.isEmpty())
+            refreshes.poll().run();
+        Part chain = store.get(2);
+
+        store.remove(store.get(1));
+        store.replace(2, part(8, "Seat"));
+        store.add(part(4, "Bell"));
+        assertEquals(3, view.size());
+        assertEquals("Wheel", view.get(0).getName());
+        assertSame(chain, view.get(1));
+        assertEquals("Pedal", view.get(2).getName());
+
+        while (!refreshes.isEmpty())
+            refreshes.poll().run();
+        assertConsistent();
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package persistence;
+
+import model.InHouse;
+import model.Inventory;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Each test records changes, then empties the inventory and recovers it from disk, as a restart would.
+ */
+class JournalTest {
+    @TempDir
+    Path directory;
+
+    private Journal journal;
+
+    @AfterEach
+    void stop() throws IOException {
+        if (journal != null)
+            Inventory.removeListener(journal);
+        empty();
+    }
+
+    private Path snapshotFile() {
+        return directory.resolve("inventory.snapshot");
+    }
+
+    private Path journalDirectory() {
+        return directory.resolve("journal");
+    }
+
+    private void open() throws IOException {
+        journal = Journal.open(snapshotFile(), journalDirectory(), Journal.DEFAULT_COMPACT_BYTES);
+        Inventory.addListener(journal);
+    }
+
+    /**
+     * Stops recording without closing the journal, as a crash would, and empties the inventory.
+     */
+    private void crash() {
+        Inventory.removeListener(journal);
+        journal = null;
+        empty();
+    }
+
+    private static void empty() {
+        for (Product product : Inventory.getProductsSnapshot())
+            Inventory.deleteProduct(product);
+        for (Part part : Inventory.getPartsSnapshot())
+            Inventory.deletePart(part);
+    }
+
+    /**
+     * @return every part and product, one line each, in ID order
+     */
+    private static String describe() {
+        Stream<String> parts = Inventory.getPartsSnapshot().stream()
+                .sorted((a, b) -> Integer.compare(a.getId(), b.getId()))
+                .map(p -> p.getId() + " " + p.getName() + " " + p.getPrice() + " " + p.getStock() + " " + p.getMin()
+                        + " " + p.getMax() + " " + (p instanceof InHouse ? ((InHouse) p).getMachineID()
+                        : ((Outsourced) p).getCompanyName()));
+        Stream<String> products = Inventory.getProductsSnapshot().stream()
+                .sorted((a, b) -> Integer.compare(a.getID(), b.getID()))
+                .map(p -> "product " + p.getID() + " " + p.getName() + " " + p.getPrice() + " " + p.getStock()
+                        + " " + p.getMin() + " " + p.getMax() + " " + lines(p));
+        return Stream.concat(parts, products).collect(Collectors.joining("\n"));
+    }
+
+    private static String lines(Product product) {
+        StringBuilder s = new StringBuilder();
+        for (long line : product.getAssociatedPartLines())
+            s.append(Product.partID(line)).append('x').append(Product.quantity(line)).append(' ');
+        return s.toString();
+    }
+
+    private void makeChanges() {
+        Inventory.addPart(new InHouse(1, "Wheel", 12.5, 40, 5, 100, 7));
+        Inventory.addPart(new Outsourced(2, "Chain", 8.0, 30, 5, 100, "Links Ltd"));
+        Inventory.addPart(new InHouse(3, "Bell", 2.0, 9, 1, 20, 2));
+        Product bike = new Product(1, "Bike", 120.0, 0, 0, 50);
+        bike.setAssociatedParts(new int[] {1, 2}, new int[] {2, 1});
+        Inventory.addProduct(bike);
+        Inventory.adjustPartStock(3, -4);
+        Inventory.modifyPart(new InHouse(1, "Wheel, 26 inch", 13.0, 40, 5, 100, 7));
+        Inventory.buildProduct(1, 3);
+        Inventory.lookupProduct(1).setAssociatedParts(new int[] {1, 2, 3}, new int[] {2, 1, 1});
+        Inventory.deletePart(Inventory.lookupPart(3));
+        Inventory.updateProductById(1, new Product(4, "Bike, red", 125.0, 3, 0, 50));
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(journalDirectory())) {
+            return files.filter(p -> p.toString().endsWith(".log")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private Path lastSegment() throws IOException {
+        List<Path> segments = segments();
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            if (Files.size(segments.get(i)) > 0)
+                return segments.get(i);
+        }
+        throw new AssertionError("no journal records on disk");
+    }
+
+    @Test
+    void replaysEveryChangeAfterACrash() throws IOException {
+        open();
+        makeChanges();
+        String before = describe();
+        crash();
+        assertEquals("", describe());
+
+        open();
+        assertEquals(before, describe());
+        assertNull(Inventory.lookupPart(3));
+        assertNull(Inventory.lookupProduct(1));
+        assertNotNull(Inventory.lookupProduct(4));
+    }
+
+    @Test
+    void trimsATornTailAndKeepsTheRecordsBeforeIt() throws IOException {
+        open();
+        makeChanges();
+        String before = describe();
+        crash();
+
+        Path segment = lastSegment();
+        long intact = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            ByteBuffer torn = ByteBuffer.allocate(10).putInt(64).putInt(0x12345678).putShort((short) 1);
+            torn.flip();
+            channel.write(torn);
+        }
+
+        open();
+        assertEquals(before, describe());
+        assertEquals(intact, Files.size(segment));
+
+        // the journal goes on after the trimmed tail
+        Inventory.adjustPartStock(1, 5);
+        String after = describe();
+        crash();
+        open();
+        assertEquals(after, describe());
+    }
+
+    @Test
+    void stopsAtARecordThatFailsItsChecksum() throws IOException {
+        open();
+        Inventory.addPart(new InHouse(1, "Wheel", 12.5, 40, 5, 100, 7));
+        Inventory.adjustPartStock(1, -10);
+        Path segment = lastSegment();
+        long beforeLast = Files.size(segment);
+        Inventory.adjustPartStock(1, -10);
+        crash();
+
+        // flip a bit in the new stock of the last record
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            long at = channel.size() - 1;
+            channel.read(b, at);
+            b.put(0, (byte) (b.get(0) ^ 1)).rewind();
+            channel.write(b, at);
+        }
+
+        open();
+        assertEquals(30, Inventory.lookupPart(1).getStock());
+        assertEquals(beforeLast, Files.size(segment));
+    }
+
+    @Test
+    void recoversFromTheSnapshotAndTheSegmentsAfterACompaction() throws IOException {
+        open();
+        makeChanges();
+        journal.compact();
+        assertTrue(Files.exists(snapshotFile()));
+        assertEquals(1, segments().size());
+
+        Inventory.addPart(new Outsourced(5, "Seat", 20.0, 4, 1, 10, "Saddles Inc"));
+        Inventory.adjustPartStock(1, -2);
+        String before = describe();
+        crash();
+
+        open();
+        assertEquals(before, describe());
+
+        // records already folded into the snapshot are not applied twice
+        journal.compact();
+        crash();
+        open();
+        assertEquals(before, describe());
+    }
+
+    @Test
+    void recoversAfterAClose() throws IOException {
+        open();
+        makeChanges();
+        String before = describe();
+        journal.close();
+        crash();
+
+        open();
+        assertEquals(before, describe());
+    }
+
+    @Test
+    void reportsChangesMadeAfterCloseWithoutUndoingThem() throws IOException {
+        open();
+        Inventory.addPart(new InHouse(1, "Wheel", 12.5, 40, 5, 100, 7));
+        journal.close();
+
+        assertThrows(IllegalStateException.class, () -> Inventory.adjustPartStock(1, 1));
+        assertEquals(41, Inventory.lookupPart(1).getStock());
+        assertThrows(IllegalStateException.class, () -> Inventory.adjustPartStock(1, 1));
+        assertEquals(42, Inventory.lookupPart(1).getStock());
+    }
+}
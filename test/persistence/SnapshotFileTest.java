@@ -0,0 +1,129 @@
+/**
+ *
+ * @author Tory Fitzgerald, id: 000559078
+ */
+
+package persistence;
+
+import model.InHouse;
+import model.Inventory;
+import model.Outsourced;
+import model.Part;
+import model.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotFileTest {
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void empty() {
+        for (Product product : Inventory.getProductsSnapshot())
+            Inventory.deleteProduct(product);
+        for (Part part : Inventory.getPartsSnapshot())
+            Inventory.deletePart(part);
+    }
+
+    private static void assertSamePart(Part expected, Part actual) {
+        assertEquals(expected.getClass(), actual.getClass());
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getPrice(), actual.getPrice());
+        assertEquals(expected.getStock(), actual.getStock());
+        assertEquals(expected.getMin(), actual.getMin());
+        assertEquals(expected.getMax(), actual.getMax());
+        if (expected instanceof InHouse)
+            assertEquals(((InHouse) expected).getMachineID(), ((InHouse) actual).getMachineID());
+        else
+            assertEquals(((Outsourced) expected).getCompanyName(), ((Outsourced) actual).getCompanyName());
+    }
+
+    @Test
+    void writeThenLoadRoundTrips() throws IOException {
+        List<Part> parts = Arrays.asList(
+                new InHouse(1, "Wheel", 12.5, 40, 5, 100, 7),
+                new Outsourced(2, "Chain", 8.25, 30, 5, 100, "Links Ltd"),
+                new Outsourced(3, "Chain", 9.0, 0, 0, 10, "Links Ltd"),
+                new InHouse(4, "Ünïcode — 車輪", 0.0, -3, 0, 0, -1),
+                new Outsourced(5, "", 1.0, 1, 1, 1, ""));
+        Product bike = new Product(10, "Bike", 120.0, 2, 0, 50);
+        bike.setAssociatedParts(new int[] {1, 2, 4}, new int[] {2, 1, 3});
+        Product empty = new Product(11, "Wheel", 0.0, 0, 0, 0);
+        List<Product> products = Arrays.asList(bike, empty);
+
+        Path file = directory.resolve("inventory.snapshot");
+        SnapshotFile.write(file, parts, products, 1234);
+        assertFalse(Files.exists(directory.resolve("inventory.snapshot.tmp")));
+
+        assertEquals(1234, SnapshotFile.load(file));
+        assertEquals(parts.size(), Inventory.getPartsSnapshot().size());
+        for (Part part : parts)
+            assertSamePart(part, Inventory.lookupPart(part.getId()));
+        assertEquals(products.size(), Inventory.getProductsSnapshot().size());
+        for (Product product : products) {
+            Product loaded = Inventory.lookupProduct(product.getID());
+            assertEquals(product.getName(), loaded.getName());
+            assertEquals(product.getPrice(), loaded.getPrice());
+            assertEquals(product.getStock(), loaded.getStock());
+            assertEquals(product.getMin(), loaded.getMin());
+            assertEquals(product.getMax(), loaded.getMax());
+            assertArrayEquals(product.getAssociatedPartLines(), loaded.getAssociatedPartLines());
+        }
+
+        // repeated names are stored once and share one String
+        assertSame(Inventory.lookupPart(2).getName(), Inventory.lookupPart(3).getName());
+        assertSame(Inventory.lookupPart(1).getName(), Inventory.lookupProduct(11).getName());
+    }
+
+    @Test
+    void loadLeavesOutPartsMissingFromTheFile() throws IOException {
+        Product bike = new Product(10, "Bike", 120.0, 2, 0, 50);
+        bike.setAssociatedParts(new int[] {1, 2}, new int[] {2, 1});
+        Path file = directory.resolve("inventory.snapshot");
+        SnapshotFile.write(file, Collections.singletonList(new InHouse(1, "Wheel", 12.5, 40, 5, 100, 7)),
+                Collections.singletonList(bike), 0);
+
+        SnapshotFile.load(file);
+        assertEquals(1, Inventory.lookupProduct(10).getAssociatedPartCount());
+        assertEquals(2, Inventory.lookupProduct(10).getAssociatedPartQuantity(1));
+    }
+
+    @Test
+    void writeReplacesTheOldFile() throws IOException {
+        Path file = directory.resolve("inventory.snapshot");
+        List<Part> many = new ArrayList<>();
+        for (int id = 1; id <= 50_000; id++)
+            many.add(new InHouse(id, "Part " + id, id / 100.0, id, 0, 100_000, id % 7));
+        SnapshotFile.write(file, many, Collections.emptyList(), 1);
+        SnapshotFile.write(file, many.subList(0, 2), Collections.emptyList(), 2);
+
+        assertEquals(2, SnapshotFile.load(file));
+        assertEquals(2, Inventory.getPartsSnapshot().size());
+        assertSamePart(many.get(1), Inventory.lookupPart(2));
+    }
+
+    @Test
+    void loadRefusesOtherFiles() throws IOException {
+        Path file = directory.resolve("not.snapshot");
+        Files.write(file, "id,name,price,stock,min,max\n1,Wheel,1,1,1,1\n".getBytes());
+        assertThrows(IOException.class, () -> SnapshotFile.load(file));
+        assertTrue(Inventory.getPartsSnapshot().isEmpty());
+    }
+}